@@ -0,0 +1,56 @@
+package Benchmarks;
+
+import Controller.Controller;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// the Controller pipeline step by step, on synthetic data generated for each parameter combination
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+    @Param({"5", "1000", "100000"})
+    int years;
+
+    @Param({"10", "1000"})
+    int variables; // series in the data file, and series in the exported results
+
+    private Path dataFile;
+    private Controller loaded; // data read, model run
+    private Controller exported; // plus script results up to the variable count
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticData.write(years, variables);
+        loaded = new Controller("Model1").readDataFrom(dataFile.toString()).runModel();
+        exported = new Controller("Model1").readDataFrom(dataFile.toString()).runModel()
+                .runScript(SyntheticData.resultsScript(Math.max(0, variables - 11)));
+    }
+
+    @Benchmark
+    public Controller constructor() {
+        return new Controller("Model1");
+    }
+
+    @Benchmark
+    public Controller readDataFrom() {
+        return new Controller("Model1").readDataFrom(dataFile.toString());
+    }
+
+    @Benchmark
+    public Controller runModel() {
+        // Model1 recomputes every period from the first one, so running it again gives the same work
+        return loaded.runModel();
+    }
+
+    @Benchmark
+    public String getResultsAsTsv() {
+        return exported.getResultsAsTsv();
+    }
+}
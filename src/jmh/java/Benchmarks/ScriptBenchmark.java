@@ -0,0 +1,44 @@
+package Benchmarks;
+
+import Controller.Controller;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// runScript with the bundled scripts, run from the project directory or pass -Desm.scripts=<dir>
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptBenchmark {
+    @Param({"5", "1000", "100000"})
+    int years;
+
+    @Param({"10", "1000"})
+    int variables;
+
+    @Param({"script1", "script2"})
+    String script;
+
+    private String scriptText;
+    private Controller loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dataFile = SyntheticData.write(years, variables);
+        scriptText = Files.readString(Paths.get(System.getProperty("esm.scripts", "src/main/scripts"), script + ".groovy"));
+        loaded = new Controller("Model1").readDataFrom(dataFile.toString()).runModel();
+    }
+
+    @Benchmark
+    public Controller runScript() {
+        // reset keeps the data and the model's results, each call runs the script once on a controller without scripts
+        return loaded.reset().runScript(scriptText);
+    }
+}
\ No newline at end of file
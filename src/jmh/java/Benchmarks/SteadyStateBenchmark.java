@@ -0,0 +1,54 @@
+package Benchmarks;
+
+import Controller.Controller;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// a whole run (data, model, static script) on a new Controller against one controller that pools arrays and is
+// reset between runs, gc.alloc.rate.norm shows what a run allocates; run from the project directory or pass
+// -Desm.scripts=<dir>
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SteadyStateBenchmark {
+    @Param({"5", "1000", "100000"})
+    int years;
+
+    @Param({"none", "script1"})
+    String script;
+
+    private String dataFile;
+    private String scriptText; // null for none
+    private Controller reused;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = SyntheticData.write(years, 10).toString();
+        if (!script.equals("none")) {
+            scriptText = Files.readString(Paths.get(System.getProperty("esm.scripts", "src/main/scripts"), script + ".groovy"));
+        }
+        reused = new Controller("Model1").useStaticScripts(true).poolArrays(true);
+    }
+
+    @Benchmark
+    public Controller fresh() {
+        return run(new Controller("Model1").useStaticScripts(true));
+    }
+
+    @Benchmark
+    public Controller reset() {
+        return run(reused.reset());
+    }
+
+    private Controller run(Controller controller) {
+        controller.readDataFrom(dataFile).runModel();
+        return scriptText != null ? controller.runScript(scriptText) : controller;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// data files in the readDataFrom format, with the Model1 series plus filler series up to the variable count
+final class SyntheticData {
+    static final String[] MODEL1_SERIES = {
+            "twKI", "twKS", "twINW", "twEKS", "twIMP", "KI", "KS", "INW", "EKS", "IMP"
+    };
+
+    private SyntheticData() {}
+
+    static Path write(int years, int variables) throws IOException {
+        Path file = Files.createTempFile("esm-bench-" + years + "x" + variables + "-", ".txt");
+        file.toFile().deleteOnExit();
+        SplittableRandom random = new SplittableRandom(42);
+
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("LATA");
+            for (int i = 0; i < years; i++) {
+                out.write(" " + (2015 + i));
+            }
+            out.newLine();
+
+            for (int v = 0; v < Math.max(variables, MODEL1_SERIES.length); v++) {
+                boolean growth = v < 5;
+                out.write(v < MODEL1_SERIES.length ? MODEL1_SERIES[v] : "X" + v);
+                for (int i = 0; i < years; i++) {
+                    double value = growth
+                            ? 1 + Math.round(random.nextDouble() * 50) / 1000.0 // growth factors like 1.03
+                            : Math.round(random.nextDouble() * 1e8) / 10.0; // levels like 1023752.2
+                    out.write(" " + value);
+                }
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    // a script that adds the given number of series to the results, for export benchmarks
+    static String resultsScript(int series) {
+        return "for (n = 0; n < " + series + "; n++) {\n"
+                + "    values = new double[LL]\n"
+                + "    for (i = 0; i < LL; i++) values[i] = PKB[i] * (n + 1) / 7\n"
+                + "    binding.setVariable('S' + n, values)\n"
+                + "}\n";
+    }
+}
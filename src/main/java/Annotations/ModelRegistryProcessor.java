@@ -0,0 +1,142 @@
+package Annotations;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// generates Models.CompiledModels, a ModelProvider listing every concrete BaseModel of the build with a
+// constructor reference and its @Bind fields, and registers it for ServiceLoader, so models are found
+// without scanning directories or reflection; runs in the second compiler execution of the build (see pom.xml)
+@SupportedAnnotationTypes("*")
+public class ModelRegistryProcessor extends AbstractProcessor {
+    static final String BASE_MODEL = "Models.BaseModel";
+    static final String PROVIDER = "Models.ModelProvider";
+    static final String DESCRIPTOR = "Models.ModelDescriptor";
+    static final String GENERATED = "Models.CompiledModels";
+
+    private final Map<String, TypeElement> models = new TreeMap<>(); // by model name
+    private boolean written;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        TypeElement baseModel = processingEnv.getElementUtils().getTypeElement(BASE_MODEL);
+        if (baseModel == null || round.processingOver()) {
+            return false;
+        }
+        int before = models.size();
+        for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+            collect(type, baseModel);
+        }
+        if (models.size() > before) {
+            if (written) {
+                warn(null, "Models generated after " + GENERATED + " are not registered");
+            } else {
+                write();
+                written = true;
+            }
+        }
+        return false; // other processors still see every annotation
+    }
+
+    private void collect(TypeElement type, TypeElement baseModel) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested, baseModel);
+        }
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+                || !processingEnv.getTypeUtils().isSubtype(type.asType(), baseModel.asType())) {
+            return;
+        }
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || !hasPublicNoArgConstructor(type)) {
+            warn(type, type.getQualifiedName() + " needs to be public with a public no-arg constructor to be registered");
+            return;
+        }
+        String name = type.getSimpleName().toString();
+        TypeElement existing = models.putIfAbsent(name, type);
+        if (existing != null && !existing.equals(type)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Two models named " + name + ": " + existing.getQualifiedName() + " and " + type.getQualifiedName(), type);
+        }
+    }
+
+    private static boolean hasPublicNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write() {
+        Element[] origins = models.values().toArray(new Element[0]);
+        int dot = GENERATED.lastIndexOf('.');
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(GENERATED, 0, dot).append(";\n\n");
+        src.append("import java.util.List;\n\n");
+        src.append("// generated by ").append(getClass().getName()).append(", do not edit\n");
+        src.append("public final class ").append(GENERATED.substring(dot + 1)).append(" implements ").append(PROVIDER).append(" {\n");
+        src.append("    @Override\n");
+        src.append("    public List<").append(DESCRIPTOR).append("> models() {\n");
+        src.append("        return List.of(");
+        int m = 0;
+        for (Map.Entry<String, TypeElement> entry : models.entrySet()) {
+            String type = entry.getValue().getQualifiedName().toString();
+            List<String> names = new ArrayList<>();
+            List<String> types = new ArrayList<>();
+            for (VariableElement field : ElementFilter.fieldsIn(entry.getValue().getEnclosedElements())) {
+                if (field.getAnnotation(Bind.class) != null) {
+                    names.add('"' + field.getSimpleName().toString() + '"');
+                    types.add(processingEnv.getTypeUtils().erasure(field.asType()) + ".class");
+                }
+            }
+            src.append(m++ > 0 ? ",\n" : "\n");
+            src.append("                new ").append(DESCRIPTOR).append("(\"").append(entry.getKey())
+                    .append("\", ").append(type).append(".class, ").append(type).append("::new,\n");
+            src.append("                        List.of(").append(String.join(", ", names)).append("),\n");
+            src.append("                        List.of(").append(String.join(", ", types)).append("))");
+        }
+        src.append(");\n    }\n}\n");
+
+        try {
+            JavaFileObject source = processingEnv.getFiler().createSourceFile(GENERATED, origins);
+            try (Writer writer = source.openWriter()) {
+                writer.write(src.toString());
+            }
+            FileObject service = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + PROVIDER, origins);
+            try (Writer writer = service.openWriter()) {
+                writer.write(GENERATED + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + GENERATED + ": " + e.getMessage());
+        }
+    }
+
+    private void warn(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package App;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// sends run requests with the data file in the body to a running SimulationServer and prints latency percentiles:
+// java App.LoadTest dataFile [requests] [concurrency] [model] [url]
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: LoadTest dataFile [requests] [concurrency] [model] [url]");
+            return;
+        }
+        byte[] data = Files.readAllBytes(Path.of(args[0]));
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        String model = args.length > 3 ? args[3] : "Model1";
+        String url = args.length > 4 ? args[4] : "http://127.0.0.1:8765";
+        URI uri = URI.create(url + "/run?model=" + URLEncoder.encode(model, StandardCharsets.UTF_8));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1).build();
+            run(client, executor, uri, data, Math.max(1, requests / 10), concurrency); // warm-up, not reported
+            long start = System.nanoTime();
+            Result result = run(client, executor, uri, data, requests, concurrency);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] latencies = result.latencies();
+            Arrays.sort(latencies);
+            System.out.printf("%d requests, %d failed, %d at a time, %.0f requests/s%n",
+                    requests, result.failed(), concurrency, requests / seconds);
+            System.out.printf("latency ms: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                    percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                    percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private record Result(long[] latencies, int failed) {}
+
+    private static Result run(HttpClient client, ExecutorService executor, URI uri, byte[] data,
+                              int requests, int concurrency) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore slots = new Semaphore(concurrency);
+        List<Future<?>> sent = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            slots.acquire();
+            sent.add(executor.submit(() -> {
+                try {
+                    HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofByteArray(data)).build();
+                    long start = System.nanoTime();
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    latencies[index] = System.nanoTime() - start;
+                    if (response.statusCode() != 200) {
+                        failed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    slots.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : sent) {
+            future.get();
+        }
+        return new Result(latencies, failed.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
\ No newline at end of file
@@ -1,24 +1,34 @@
 package App;
 
 import Controller.Controller;
-import Models.BaseModel;
+import Controller.SeriesStore;
+import Equations.EquationModels;
+import Models.ModelRegistry;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class MainGUI extends JFrame {
+    private static final int SCRIPT_TIMEOUT_SECONDS = 30; // ad hoc and file scripts are stopped after this
+    private static final int ROWS_PER_PUBLISH = 64; // result rows handed to the table at once
+
     private Controller controller;
     private JTable resultsTable;
-    private DefaultTableModel tableModel;
+    private ResultsTableModel tableModel;
     private JButton runModelButton;
     private final JButton runScriptFromFileButton;
     private final JButton createAndRunAdHocScriptButton;
+    private final JProgressBar progressBar;
+    private final JLabel statusLabel;
+    private final JButton cancelButton;
+    private Task runningTask; // at most one at a time, the run buttons are disabled meanwhile
 
     public MainGUI() {
         setTitle("MCS");
@@ -59,8 +69,10 @@ public class MainGUI extends JFrame {
         centerPanel.setLayout(new BorderLayout());
 
         // results table
-        tableModel = new DefaultTableModel();
+        tableModel = new ResultsTableModel();
         resultsTable = new JTable(tableModel);
+        resultsTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF); // one column per year, scrolled horizontally
+        resultsTable.setDefaultRenderer(Double.class, new NumberFormatting()); // number formatting
         JScrollPane tableScrollPane = new JScrollPane(resultsTable);
         centerPanel.add(tableScrollPane, BorderLayout.CENTER);
 
@@ -81,16 +93,30 @@ public class MainGUI extends JFrame {
         centerPanel.add(tableButtonsPanel, BorderLayout.SOUTH);
 
         add(centerPanel, BorderLayout.CENTER);
+
+        // status bar with progress of the running task
+        JPanel statusPanel = new JPanel(new BorderLayout(10, 0));
+        statusPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        statusLabel = new JLabel("Ready");
+        statusPanel.add(statusLabel, BorderLayout.WEST);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+        statusPanel.add(progressBar, BorderLayout.CENTER);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (runningTask != null) {
+                runningTask.stop(false);
+            }
+        });
+        statusPanel.add(cancelButton, BorderLayout.EAST);
+        add(statusPanel, BorderLayout.SOUTH);
     }
 
     private void populateModelList(DefaultListModel<String> modelListModel) {
         try {
-            // all model files
-            File[] modelFiles = getModelFiles();
-            if (modelFiles == null) return;
-
-            // valid model class names
-            List<String> modelNames = getValidModelNames(modelFiles);
+            // compiled and equation models, from the registry generated at build time
+            List<String> modelNames = new ArrayList<>(ModelRegistry.names());
 
             // to sort and add to list model
             addModelNamesToList(modelListModel, modelNames);
@@ -99,32 +125,6 @@ public class MainGUI extends JFrame {
         }
     }
 
-    private File[] getModelFiles() {
-        File modelsDirectory = new File("/Users/danylooliinyk/programming/UTP/Projects/MCS/src/main/java/Models");
-        if (modelsDirectory.exists() && modelsDirectory.isDirectory()) {
-            return modelsDirectory.listFiles((dir, name) -> name.endsWith(".java"));
-        }
-        return null;
-    }
-
-    private List<String> getValidModelNames(File[] modelFiles) {
-        List<String> modelNames = new ArrayList<>();
-        for (File modelFile : modelFiles) {
-            try {
-                String className = modelFile.getName().replace(".java", "");
-                Class<?> clazz = Class.forName("Models." + className);
-
-                // the class must extend BaseModel but also is not BaseModel
-                if (BaseModel.class.isAssignableFrom(clazz) && !clazz.equals(BaseModel.class)) {
-                    modelNames.add(className);
-                }
-            } catch (ClassNotFoundException e) {
-                System.err.println("Class not found: " + modelFile.getName());
-            }
-        }
-        return modelNames;
-    }
-
     private void addModelNamesToList(DefaultListModel<String> modelListModel, List<String> modelNames) {
         Collections.sort(modelNames); // to sort alphabetically
         for (String modelName : modelNames) {
@@ -157,14 +157,19 @@ public class MainGUI extends JFrame {
             return;
         }
 
-        controller = new Controller(selectedModel);
-        controller.readDataFrom("/Users/danylooliinyk/programming/UTP/Projects/MCS/src/main/data/" + selectedData).runModel();
-
-        updateResultsTable(controller.getResultsAsTsv());
-
-        // the additional buttons appear after the model is run
-        runScriptFromFileButton.setVisible(true);
-        createAndRunAdHocScriptButton.setVisible(true);
+        // a new controller replaces the current one only if the run completes
+        start(new Task(0, task -> {
+            task.status("Loading model " + selectedModel);
+            Controller newController = new Controller(selectedModel);
+            task.status("Reading " + selectedData);
+            newController.loadData("/Users/danylooliinyk/programming/UTP/Projects/MCS/src/main/data/" + selectedData);
+            task.status("Running model");
+            return newController.runModel();
+        }, () -> {
+            // the additional buttons appear after the model is run
+            runScriptFromFileButton.setVisible(true);
+            createAndRunAdHocScriptButton.setVisible(true);
+        }));
     }
 
     private void runScriptFromFile(ActionEvent e) {
@@ -178,8 +183,12 @@ public class MainGUI extends JFrame {
 
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File scriptFile = fileChooser.getSelectedFile();
-            controller.runScriptFromFile(scriptFile.getAbsolutePath());
-            updateResultsTable(controller.getResultsAsTsv());
+            Controller current = controller;
+            start(new Task(SCRIPT_TIMEOUT_SECONDS, task -> {
+                task.status("Running " + scriptFile.getName());
+                current.executeScriptFile(scriptFile.getAbsolutePath()); // a failure reaches done() through get()
+                return current;
+            }, null));
         }
     }
 
@@ -205,42 +214,171 @@ public class MainGUI extends JFrame {
         if (result == JOptionPane.OK_OPTION) {
             String script = scriptArea.getText();
             if (script != null && !script.trim().isEmpty()) {
-                controller.runScript(script);
-                updateResultsTable(controller.getResultsAsTsv());
+                Controller current = controller;
+                start(new Task(SCRIPT_TIMEOUT_SECONDS, task -> {
+                    task.status("Running ad hoc script");
+                    current.executeScript(script);
+                    return current;
+                }, null));
+            }
+        }
+    }
+
+    private void start(Task task) {
+        runningTask = task;
+        runModelButton.setEnabled(false);
+        runScriptFromFileButton.setEnabled(false);
+        createAndRunAdHocScriptButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        progressBar.setValue(0);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(true);
+        task.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) event.getNewValue());
+            } else if ("status".equals(event.getPropertyName())) {
+                statusLabel.setText((String) event.getNewValue());
             }
+        });
+        task.execute();
+    }
+
+    private void finish(Task task, String status) {
+        if (runningTask != task) {
+            return;
         }
+        runningTask = null;
+        runModelButton.setEnabled(true);
+        runScriptFromFileButton.setEnabled(true);
+        createAndRunAdHocScriptButton.setEnabled(true);
+        cancelButton.setEnabled(false);
+        progressBar.setVisible(false);
+        statusLabel.setText(status);
+    }
+
+    private interface Work {
+        Controller run(Task task) throws Exception;
     }
 
-    private void updateResultsTable(String tsvResults) {
-        // to clear the existing table model
-        tableModel.setRowCount(0);
-        tableModel.setColumnCount(0);
-
-        // put results
-        String[] lines = tsvResults.split("\n");
-        if (lines.length > 0) {
-            // row with column names
-            String[] columns = lines[0].split("\t");
-            for (String column : columns) {
-                tableModel.addColumn(column);
+    // runs the model or a script off the event dispatch thread, then streams the result rows into the table
+    private class Task extends SwingWorker<Controller, ResultsTableModel.Row> {
+        private final int timeoutSeconds; // 0 for no timeout
+        private final Work work;
+        private final Runnable onSuccess;
+        private Timer timeout;
+        private boolean timedOut;
+        private volatile Thread worker; // while doInBackground runs
+        private volatile int years; // of the results, set before the first rows are published
+        private boolean tableReset; // on the event dispatch thread, once the first rows arrive
+
+        Task(int timeoutSeconds, Work work, Runnable onSuccess) {
+            this.timeoutSeconds = timeoutSeconds;
+            this.work = work;
+            this.onSuccess = onSuccess;
+            if (timeoutSeconds > 0) {
+                timeout = new Timer(timeoutSeconds * 1000, e -> stop(true));
+                timeout.setRepeats(false);
+                timeout.start();
+            }
+        }
+
+        // interrupting the worker thread stops a script (see ScriptCache), repeated until the work returns
+        // because compiling a script can swallow an interrupt
+        void stop(boolean timedOut) {
+            this.timedOut = timedOut;
+            cancel(true);
+            Timer interrupter = new Timer(250, e -> {
+                Thread thread = worker;
+                if (thread != null) {
+                    thread.interrupt();
+                } else {
+                    ((Timer) e.getSource()).stop();
+                }
+            });
+            interrupter.start();
+        }
+
+        void status(String text) {
+            firePropertyChange("status", null, text);
+        }
+
+        @Override
+        protected Controller doInBackground() throws Exception {
+            Controller result;
+            worker = Thread.currentThread();
+            try {
+                result = work.run(this);
+            } finally {
+                worker = null;
+            }
+            if (isCancelled()) {
+                return null;
+            }
+            if (timeout != null) {
+                timeout.stop(); // streaming the results is not part of the script time
             }
 
-            // data rows
-            for (int i = 1; i < lines.length; i++) {
-                String[] row = lines[i].split("\t");
-                tableModel.addRow(row);
+            status("Loading results");
+            SeriesStore series = result.getSeriesStore();
+            years = series.getYears();
+            int total = Math.max(1, series.size());
+            List<ResultsTableModel.Row> batch = new ArrayList<>(ROWS_PER_PUBLISH);
+            for (int id = 0; id < series.size(); id++) {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                // the table reads the store's columns themselves, nothing is copied or formatted here
+                batch.add(new ResultsTableModel.Row(series.name(id), series.column(id), series.count(id)));
+                if (batch.size() == ROWS_PER_PUBLISH) {
+                    publish(batch.toArray(new ResultsTableModel.Row[0]));
+                    batch.clear();
+                }
+                setProgress(Math.min(100, (id + 1) * 100 / total));
             }
+            publish(batch.toArray(new ResultsTableModel.Row[0]));
+            return result;
         }
 
-        // number formatting
-        NumberFormatting numberRenderer = new NumberFormatting();
+        @Override
+        protected void process(List<ResultsTableModel.Row> rows) {
+            if (isCancelled()) {
+                return;
+            }
+            // the old results stay until rows of the new ones arrive
+            if (!tableReset) {
+                tableModel.reset(Controller.START_YEAR, years);
+                tableReset = true;
+            }
+            tableModel.addRows(rows);
+        }
 
-        for (int col = 1; col < tableModel.getColumnCount(); col++) {
-            resultsTable.getColumnModel().getColumn(col).setCellRenderer(numberRenderer);
+        @Override
+        protected void done() {
+            if (timeout != null) {
+                timeout.stop();
+            }
+            if (isCancelled()) {
+                finish(this, timedOut ? "Stopped after " + timeoutSeconds + " s" : "Cancelled");
+                return;
+            }
+            try {
+                controller = get();
+                if (onSuccess != null) {
+                    onSuccess.run();
+                }
+                finish(this, "Done");
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                cause.printStackTrace();
+                finish(this, "Failed");
+                JOptionPane.showMessageDialog(MainGUI.this, cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
         }
     }
 
     public static void main(String[] args) {
+        EquationModels.loadModelsDirectory(); // so the equation models are in the model list
         SwingUtilities.invokeLater(() -> {
             MainGUI app = new MainGUI();
             app.setVisible(true);
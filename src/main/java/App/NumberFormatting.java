@@ -25,25 +25,11 @@ public class NumberFormatting extends DefaultTableCellRenderer {
                                                    int row, int column) {
         if (value != null) {
             try {
-                double number = Double.parseDouble(value.toString());
+                // results table cells are already doubles, other tables hold strings
+                double number = value instanceof Number n ? n.doubleValue() : Double.parseDouble(value.toString());
 
                 if (isRowBelowOrAtKI(table, row)) {
-                    // to 1 decimal place
-                    String formatted = oneDecimalFormat.format(number);
-
-                    // for numbers starting with "0,"
-                    if (formatted.startsWith("0,")) {
-                        formatted = threeDecimalFormat.format(number); // 3 decimals
-
-                        // to remove unnecessary zeros
-                        if (formatted.endsWith("0")) {
-                            formatted = formatted.replaceAll(",?0+$", "");
-                        }
-                    } else if (formatted.endsWith(",0")) {
-                        // to remove ",0" if the number is whole
-                        formatted = formatted.substring(0, formatted.length() - 2);
-                    }
-                    value = formatted;
+                    value = formatDecimals(number);
                 } else {
                     // to replace '.' with ',' for rows above "KI"
                     value = value.toString().replace('.', ',');
@@ -56,8 +42,35 @@ public class NumberFormatting extends DefaultTableCellRenderer {
         return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
     }
 
+    private String formatDecimals(double number) {
+        // to 1 decimal place
+        String formatted = oneDecimalFormat.format(number);
+
+        // for numbers starting with "0,"
+        if (formatted.startsWith("0,")) {
+            formatted = threeDecimalFormat.format(number); // 3 decimals
+
+            // to remove unnecessary zeros, and the separator if nothing is left after it
+            int end = formatted.length();
+            while (formatted.charAt(end - 1) == '0' && end > 1) {
+                end--;
+            }
+            if (formatted.charAt(end - 1) == ',') {
+                end--;
+            }
+            formatted = formatted.substring(0, end);
+        } else if (formatted.endsWith(",0")) {
+            // to remove ",0" if the number is whole
+            formatted = formatted.substring(0, formatted.length() - 2);
+        }
+        return formatted;
+    }
+
     // method to check if the current row is "KI" or below
     private boolean isRowBelowOrAtKI(JTable table, int row) {
+        if (table.getModel() instanceof ResultsTableModel results) {
+            return results.isRowAtOrBelowKI(table.convertRowIndexToModel(row)); // known per row
+        }
         for (int i = 0; i <= row; i++) {
             Object valueAtFirstColumn = table.getValueAt(i, 0);
             if (valueAtFirstColumn != null && "KI".equals(valueAtFirstColumn.toString())) {
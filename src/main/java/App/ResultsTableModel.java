@@ -0,0 +1,74 @@
+package App;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// results table that reads cells straight from the result arrays, nothing is copied or formatted
+// until the table asks for a visible cell
+public class ResultsTableModel extends AbstractTableModel {
+    // one result row, values may be null for a row that only has a name
+    public record Row(String name, double[] values, int count) {}
+
+    private final List<Row> rows = new ArrayList<>();
+    private int startYear;
+    private int years;
+    private int firstKIRow = -1; // rows from here on are formatted with decimals
+
+    // to drop the rows and set up the year columns of a new result set
+    public void reset(int startYear, int years) {
+        rows.clear();
+        this.startYear = startYear;
+        this.years = years;
+        firstKIRow = -1;
+        fireTableStructureChanged();
+    }
+
+    public void addRows(List<Row> newRows) {
+        if (newRows.isEmpty()) {
+            return;
+        }
+        int first = rows.size();
+        for (Row row : newRows) {
+            if (firstKIRow < 0 && row.name().equals("KI")) {
+                firstKIRow = rows.size();
+            }
+            rows.add(row);
+        }
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    public boolean isRowAtOrBelowKI(int row) {
+        return firstKIRow >= 0 && row >= firstKIRow;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return years + 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? "LATA" : Integer.toString(startYear + column - 1);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? String.class : Double.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Row r = rows.get(row);
+        if (column == 0) {
+            return r.name();
+        }
+        int t = column - 1;
+        return r.values() != null && t < r.count() && t < r.values().length ? r.values()[t] : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package App;
+
+import Controller.SimulationServer;
+import Equations.EquationModels;
+
+import java.io.IOException;
+
+// the simulation server until the process is stopped: java App.ServerMain [port]
+public class ServerMain {
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SimulationServer.DEFAULT_PORT;
+        EquationModels.loadModelsDirectory();
+        SimulationServer server = new SimulationServer(port).warmUp(2_000);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-stop"));
+        System.out.println("Listening on http://127.0.0.1:" + server.getPort() + "/run");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package Controller;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// runs many (model, data, scripts) jobs concurrently, each job on its own Controller
+public class BatchRunner implements AutoCloseable {
+    private final ExecutorService executor;
+    private final boolean ownsExecutor; // only executors created here are shut down on close
+    private final int maxInFlight;
+    private ResultCache cache; // null runs every job
+
+    public record Job(String modelName, String dataFile, List<String> scriptFiles) {
+        public Job {
+            scriptFiles = List.copyOf(scriptFiles);
+        }
+
+        public Job(String modelName, String dataFile, String... scriptFiles) {
+            this(modelName, dataFile, List.of(scriptFiles));
+        }
+    }
+
+    // either controller or error is set, a failed job never affects the others, also when its script fails
+    // an assert or runs out of stack or memory
+    public record Result(Job job, Controller controller, Throwable error, long elapsedNanos) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    public BatchRunner(ExecutorService executor, int maxInFlight) {
+        this(executor, maxInFlight, false);
+    }
+
+    private BatchRunner(ExecutorService executor, int maxInFlight, boolean ownsExecutor) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public static BatchRunner withPlatformThreads(int threads) {
+        return new BatchRunner(Executors.newFixedThreadPool(threads), threads * 2, true);
+    }
+
+    public static BatchRunner withVirtualThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new BatchRunner(Executors.newVirtualThreadPerTaskExecutor(), cores * 4, true);
+    }
+
+    // jobs already run with the same model, data and scripts come from the cache
+    public BatchRunner withCache(ResultCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    // results are handed to onResult on the calling thread in the order the jobs finish
+    public void run(List<Job> jobs, Consumer<Result> onResult) throws InterruptedException {
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        Iterator<Job> pending = jobs.iterator();
+        int inFlight = 0;
+
+        while (pending.hasNext() || inFlight > 0) {
+            // to keep a bounded number of jobs queued, so finished controllers don't pile up
+            while (pending.hasNext() && inFlight < maxInFlight) {
+                Job job = pending.next();
+                completion.submit(() -> execute(job));
+                inFlight++;
+            }
+
+            try {
+                onResult.accept(completion.take().get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Batch job failed outside of its error handling", e.getCause());
+            }
+            inFlight--;
+        }
+    }
+
+    public List<Result> runAll(List<Job> jobs) throws InterruptedException {
+        List<Result> results = new ArrayList<>(jobs.size());
+        run(jobs, results::add);
+        return results;
+    }
+
+    private Result execute(Job job) {
+        long start = System.nanoTime();
+        try {
+            if (cache != null) {
+                return new Result(job, cache.run(job.modelName(), job.dataFile(), job.scriptFiles()), null, System.nanoTime() - start);
+            }
+            Controller controller = new Controller(job.modelName());
+            controller.loadData(job.dataFile());
+            controller.runModel();
+            for (String scriptFile : job.scriptFiles()) {
+                controller.executeScriptFile(scriptFile);
+            }
+            return new Result(job, controller, null, System.nanoTime() - start);
+        } catch (Throwable e) {
+            return new Result(job, null, e, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
\ No newline at end of file
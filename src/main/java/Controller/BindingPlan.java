@@ -0,0 +1,198 @@
+package Controller;
+
+import Annotations.Bind;
+import Models.BaseModel;
+import Models.ModelDescriptor;
+import Models.ModelRegistry;
+import groovy.lang.Binding;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// the @Bind fields of a model class resolved once into method handles, shared by every run of that class
+public final class BindingPlan {
+    private static final ClassValue<BindingPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected BindingPlan computeValue(Class<?> type) {
+            return new BindingPlan(type);
+        }
+    };
+
+    private static final MethodType GET_OBJECT = MethodType.methodType(Object.class, BaseModel.class);
+    private static final MethodType GET_SERIES = MethodType.methodType(double[].class, BaseModel.class);
+    private static final MethodType SET_SERIES = MethodType.methodType(void.class, BaseModel.class, double[].class);
+    private static final MethodType GET_INT = MethodType.methodType(int.class, BaseModel.class);
+    private static final MethodType SET_INT = MethodType.methodType(void.class, BaseModel.class, int.class);
+
+    private final Class<?> modelClass;
+
+    // all @Bind fields in declaration order
+    private final String[] names;
+    private final Class<?>[] types;
+    private final MethodHandle[] getters; // Object (BaseModel)
+    private final MethodHandle[] seriesGetters; // double[] (BaseModel), null for non double[] fields
+    private final MethodHandle[] seriesSetters; // void (BaseModel, double[]), null for non double[] fields
+
+    private final MethodHandle[] yearSetters; // every @Bind int field holds the number of years
+    private final MethodHandle yearsGetter; // the LL field, null if the model has none
+
+    private BindingPlan(Class<?> modelClass) {
+        this.modelClass = modelClass;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        List<Field> bound = new ArrayList<>();
+        List<MethodHandle> intSetters = new ArrayList<>();
+        MethodHandle llGetter = null;
+
+        try {
+            for (Field field : modelClass.getDeclaredFields()) {
+                boolean isBound = field.isAnnotationPresent(Bind.class);
+                boolean isYears = field.getName().equals("LL") && field.getType().equals(int.class);
+                if (!isBound && !isYears) {
+                    continue;
+                }
+                ReflectionUtility.disableAccessCheck(field);
+
+                if (isYears) {
+                    llGetter = lookup.unreflectGetter(field).asType(GET_INT);
+                }
+                if (isBound) {
+                    bound.add(field);
+                    if (field.getType().equals(int.class)) {
+                        intSetters.add(lookup.unreflectSetter(field).asType(SET_INT));
+                    }
+                }
+            }
+
+            // declaration order as the compiler saw it, which reflection doesn't promise
+            ModelDescriptor descriptor = ModelRegistry.find(modelClass);
+            if (descriptor != null) {
+                bound.sort(Comparator.comparingInt(field -> descriptor.bindNames().indexOf(field.getName())));
+            }
+
+            int n = bound.size();
+            names = new String[n];
+            types = new Class<?>[n];
+            getters = new MethodHandle[n];
+            seriesGetters = new MethodHandle[n];
+            seriesSetters = new MethodHandle[n];
+            for (int i = 0; i < n; i++) {
+                Field field = bound.get(i);
+                names[i] = field.getName();
+                types[i] = field.getType();
+                getters[i] = lookup.unreflectGetter(field).asType(GET_OBJECT);
+                if (field.getType().equals(double[].class)) {
+                    seriesGetters[i] = lookup.unreflectGetter(field).asType(GET_SERIES);
+                    seriesSetters[i] = lookup.unreflectSetter(field).asType(SET_SERIES);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access @Bind fields of " + modelClass.getName(), e);
+        }
+
+        yearSetters = intSetters.toArray(new MethodHandle[0]);
+        yearsGetter = llGetter;
+    }
+
+    public static BindingPlan of(Class<? extends BaseModel> modelClass) {
+        return PLANS.get(modelClass);
+    }
+
+    public static BindingPlan of(BaseModel model) {
+        return PLANS.get(model.getClass());
+    }
+
+    public Class<?> getModelClass() {
+        return modelClass;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public Class<?> type(int i) {
+        return types[i];
+    }
+
+    public boolean isSeries(int i) {
+        return seriesGetters[i] != null;
+    }
+
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Object get(BaseModel model, int i) {
+        try {
+            return (Object) getters[i].invokeExact(model);
+        } catch (Throwable e) {
+            throw failure(names[i], e);
+        }
+    }
+
+    public double[] getSeries(BaseModel model, int i) {
+        try {
+            return (double[]) seriesGetters[i].invokeExact(model);
+        } catch (Throwable e) {
+            throw failure(names[i], e);
+        }
+    }
+
+    public void setSeries(BaseModel model, int i, double[] values) {
+        try {
+            seriesSetters[i].invokeExact(model, values);
+        } catch (Throwable e) {
+            throw failure(names[i], e);
+        }
+    }
+
+    public int getYears(BaseModel model) {
+        if (yearsGetter == null) {
+            throw new IllegalStateException("Model has no LL field: " + modelClass.getName());
+        }
+        try {
+            return (int) yearsGetter.invokeExact(model);
+        } catch (Throwable e) {
+            throw failure("LL", e);
+        }
+    }
+
+    public void setYears(BaseModel model, int years) {
+        for (MethodHandle setter : yearSetters) {
+            try {
+                setter.invokeExact(model, years);
+            } catch (Throwable e) {
+                throw failure("LL", e);
+            }
+        }
+    }
+
+    // @Bind fields and LL as script variables
+    public void bindTo(Binding binding, BaseModel model) {
+        for (int i = 0; i < names.length; i++) {
+            binding.setVariable(names[i], get(model, i));
+        }
+        binding.setVariable("LL", getYears(model));
+    }
+
+    private RuntimeException failure(String fieldName, Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new IllegalStateException("Cannot access field " + fieldName + " of " + modelClass.getName(), cause);
+    }
+}
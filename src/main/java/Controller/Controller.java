@@ -1,97 +1,229 @@
 package Controller;
 
-import Annotations.Bind;
+import Metrics.Metrics;
+import Metrics.Phase;
 import Models.*;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.lang.reflect.Field;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Controller {
-    private BaseModel model;
-    private Map<String, Object> results; // script-generated variables
+    public static final int START_YEAR = 2015; // year of the first column in the results
+
+    // every run keeps its own model and results, so separate controllers can be used from separate threads
+    private final String modelName;
+    private final BaseModel model;
+    private final BindingPlan plan; // @Bind accessors, resolved once per model class
+    private final SeriesStore store; // @Bind fields and script-generated variables, the result rows
+    private final List<String> executedScripts = new ArrayList<>(); // each once, in the order they last ran, to rerun after edits
+    private boolean staticScripts = Boolean.getBoolean("esm.scripts.static"); // see useStaticScripts
+    private boolean poolArrays; // see poolArrays
+    private boolean shared; // arrays were handed out through getModel, getSeriesStore or forEachResultRow
 
     public Controller(String modelName) {
+        this.modelName = modelName;
+        try (Phase phase = Metrics.start("loadModel", modelName, null)) {
+            model = createModel(modelName);
+            plan = BindingPlan.of(model);
+        }
+        store = new SeriesStore(plan);
+    }
+
+    static BaseModel createModel(String modelName) {
+        // compiled models and equation models by name (see ModelRegistry), other classes in the Models package by reflection
+        ModelDescriptor descriptor = ModelRegistry.find(modelName);
+        if (descriptor != null) {
+            return descriptor.create();
+        }
         try {
             Class<?> clas = Class.forName("Models." + modelName);
             if (BaseModel.class.isAssignableFrom(clas)) {
-                model = (BaseModel) clas.getDeclaredConstructor().newInstance();
-            } else {
-                throw new IllegalArgumentException("Class does not extend BaseModel: " + modelName);
+                return (BaseModel) clas.getDeclaredConstructor().newInstance();
             }
+            throw new IllegalArgumentException("Class does not extend BaseModel: " + modelName);
         } catch (Exception e) {
             throw new IllegalArgumentException("Failed to load model: " + modelName, e);
         }
-        results = new LinkedHashMap<>();
     }
 
-    public Controller readDataFrom(String fileName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            Map<String, String[]> data = new HashMap<>();
-            String line;
-
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.trim().split("\\s+");
-                if (parts.length > 1) {
-                    data.put(parts[0], Arrays.copyOfRange(parts, 1, parts.length));
-                }
-            }
+    public String getModelName() {
+        return modelName;
+    }
 
-            // the model fields
-            for (Field field : model.getClass().getDeclaredFields()) {
-                if (field.isAnnotationPresent(Bind.class)) {
-                    field.setAccessible(true);
-
-                    if (field.getType().equals(int.class)) {
-                        // field for number of years
-                        field.set(model, data.get("LATA").length);
-                    } else if (field.getType().equals(double[].class)) {
-                        String[] values = data.get(field.getName());
-                        if (values != null) {
-                            double[] doubleValues = new double[data.get("LATA").length];
-                            for (int i = 0; i < values.length; i++) {
-                                doubleValues[i] = Double.parseDouble(values[i]);
-                            }
-                            // remaining values with the last value
-                            for (int i = values.length; i < doubleValues.length; i++) {
-                                doubleValues[i] = doubleValues[values.length - 1];
-                            }
-                            field.set(model, doubleValues);
-                        }
-                    }
-                }
-            }
+    public BaseModel getModel() {
+        shared = true;
+        return model;
+    }
+
+    // the model for readers in this package that don't keep its arrays
+    BaseModel model() {
+        return model;
+    }
+
+    public BindingPlan getBindingPlan() {
+        return plan;
+    }
+
+    public int getYears() {
+        return plan.getYears(model);
+    }
+
+    // a read-only view of a @Bind series, null if it has no values; unlike getModel it leaves the controller
+    // its arrays (see poolArrays), so the view only holds until the controller reads data or runs again
+    public DoubleBuffer getSeries(String name) {
+        int field = plan.indexOf(name);
+        if (field < 0 || !plan.isSeries(field)) {
+            throw new IllegalArgumentException("Model has no @Bind series: " + name);
+        }
+        double[] values = plan.getSeries(model, field);
+        return values != null ? DoubleBuffer.wrap(values).asReadOnlyBuffer() : null;
+    }
+
+    // scripts compiled with @CompileStatic against typed @Bind fields (see StaticScriptLoader): loops over
+    // series run on primitive arrays, and a script that doesn't type check fails with the compiler's messages
+    public Controller useStaticScripts(boolean enabled) {
+        this.staticScripts = enabled;
+        return this;
+    }
+
+    public boolean isUsingStaticScripts() {
+        return staticScripts;
+    }
+
+    // script texts in the order they last ran, a script run again is listed once
+    public List<String> getExecutedScripts() {
+        return Collections.unmodifiableList(executedScripts);
+    }
+
+    // the result rows as writeResultsTo writes them, with the model's current arrays
+    public SeriesStore getSeriesStore() {
+        shared = true;
+        return store();
+    }
+
+    // the store for readers in this package that don't keep its arrays
+    SeriesStore store() {
+        store.syncModel(plan, model);
+        return store;
+    }
+
+    // for one controller that is reset and run again and again on one thread: the arrays of script results
+    // go to the thread's ArrayPool at reset, and reading data, running the model and runScript take their
+    // arrays from there, so after the first run nothing is allocated per period. Off by default, and off for
+    // good once getModel, getSeriesStore or forEachResultRow handed arrays out, those are never written again
+    public Controller poolArrays(boolean enabled) {
+        this.poolArrays = enabled;
+        return this;
+    }
+
+    public boolean isPoolingArrays() {
+        return poolArrays && !shared;
+    }
+
+    // back to the state of a new controller for the next readDataFrom: script results and executed scripts
+    // are dropped, the model and its series are kept for the data to be parsed into in place; series the
+    // next data has no row for keep their values, as when reading data twice
+    public Controller reset() {
+        if (isPoolingArrays()) {
+            store().clearResults(ArrayPool::give);
+        } else {
+            store.clearResults(array -> {});
+        }
+        executedScripts.clear();
+        return this;
+    }
+
+    // to put back the scripts of a snapshot, their results are put into the store
+    void restore(List<String> scripts) {
+        for (String script : scripts) {
+            executed(script);
+        }
+    }
+
+    // the model, its series, script results and scripts into one file (see Snapshot)
+    public Controller saveSnapshot(String fileName) {
+        try {
+            Snapshot.write(this, java.nio.file.Paths.get(fileName));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return this;
+    }
+
+    // a controller as saveSnapshot left it, for only a few series Snapshot.open reads them without copying
+    public static Controller loadSnapshot(String fileName) throws IOException {
+        return Snapshot.open(java.nio.file.Paths.get(fileName)).toController();
+    }
+
+    public Controller readDataFrom(String fileName) {
+        try {
+            loadData(fileName);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return this;
     }
 
+    // same as readDataFrom, but failures are thrown to the caller
+    public void loadData(String fileName) throws Exception {
+        // the file is memory-mapped and parsed in place into the model fields
+        java.nio.file.Path file = java.nio.file.Paths.get(fileName);
+        boolean pooling = ArrayPool.enable(isPoolingArrays());
+        try (Phase phase = Metrics.start("readData", modelName, fileName)) {
+            DataReader.read(file, model, plan, !shared); // arrays handed out keep their values
+        } finally {
+            ArrayPool.enable(pooling);
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.count("dataBytes", modelName, java.nio.file.Files.size(file));
+        }
+    }
+
+    // data that is already in memory, between the buffer's position and limit
+    void loadData(java.nio.ByteBuffer data) {
+        int bytes = data.remaining();
+        boolean pooling = ArrayPool.enable(isPoolingArrays());
+        try (Phase phase = Metrics.start("readData", modelName, null)) {
+            DataReader.read(data, model, plan, !shared);
+        } finally {
+            ArrayPool.enable(pooling);
+        }
+        Metrics.count("dataBytes", modelName, bytes);
+    }
+
     public Controller runModel() {
         if (model != null) {
-            model.run();
+            boolean pooling = ArrayPool.enable(isPoolingArrays());
+            try (Phase phase = Metrics.start("runModel", modelName, null)) {
+                model.run();
+            } finally {
+                ArrayPool.enable(pooling);
+            }
         } else {
             throw new IllegalStateException("Model is not initialized.");
         }
         return this;
     }
 
+    // for long horizons, recurrences are computed as parallel scans (see BaseModel.runParallel)
+    public Controller runModelParallel() {
+        boolean pooling = ArrayPool.enable(isPoolingArrays());
+        try (Phase phase = Metrics.start("runModelParallel", modelName, null)) {
+            model.runParallel();
+        } finally {
+            ArrayPool.enable(pooling);
+        }
+        return this;
+    }
+
     public Controller runScriptFromFile(String fName) {
         try {
-            Binding binding = prepareBinding();
-
-            // to read script content from the file
-            String scriptContent = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(fName)));
-
-            // to execute the script
-            GroovyShell shell = new GroovyShell(binding);
-            shell.evaluate(scriptContent);
-
-            // script variables
-            getScriptVariables(binding);
+            executeScriptFile(fName);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -100,129 +232,341 @@ public class Controller {
 
     public Controller runScript(String script) {
         try {
-            Binding binding = prepareBinding();
-
-            // the script passed as a string
-            GroovyShell shell = new GroovyShell(binding);
-            shell.evaluate(script);
-
-            // script variables
-            getScriptVariables(binding);
+            executeScript(script);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return this;
     }
 
-    public String getResultsAsTsv() {
-        StringBuilder sb = new StringBuilder();
-        Set<String> printedFields = new HashSet<>();
+    // scripts that don't change array elements the others use run at the same time,
+    // their variables are merged in the given order, as if they had run one after another
+    public Controller runScripts(List<String> scripts) {
+        try {
+            executeScripts(scripts);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return this;
+    }
 
+    public Controller runScriptsFromFiles(String... fileNames) {
         try {
-            // the number of years (LL) dynamically
-            int LL = getNumberOfYears();
+            List<String> scripts = new ArrayList<>();
+            for (String fileName : fileNames) {
+                scripts.add(readScript(fileName));
+            }
+            executeScripts(scripts, List.of(fileNames));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return this;
+    }
 
-            // the header row for years
-            appendYearRow(sb, LL);
+    // same as runScriptFromFile, but failures are thrown to the caller
+    public void executeScriptFile(String fName) throws Exception {
+        executeScript(readScript(fName), fName);
+    }
 
-            // fields annotated with @Bind
-            appendBindFields(sb, printedFields, LL);
+    static String readScript(String fName) throws IOException {
+        // to read script content from the file
+        return new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(fName)));
+    }
 
-            // script-generated results
-            appendScriptResults(sb, printedFields, LL);
+    // same as runScript, but failures are thrown to the caller
+    public void executeScript(String script) throws Exception {
+        executeScript(script, null);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    void executeScript(String script, String fileName) throws Exception {
+        boolean pooling = ArrayPool.enable(isPoolingArrays());
+        try (Phase phase = Metrics.start("runScript", modelName, scriptName(script, fileName))) {
+            evaluate(script);
+        } finally {
+            ArrayPool.enable(pooling);
         }
-        return sb.toString();
+        executed(script);
     }
 
-    private int getNumberOfYears() throws Exception {
-        Field llField = model.getClass().getDeclaredField("LL");
-        llField.setAccessible(true);
-        return (int) llField.get(model); // number of years
+    // a script run again replaces its earlier entry, its outputs are the ones of its last run
+    private void executed(String script) {
+        executedScripts.remove(script);
+        executedScripts.add(script);
     }
 
-    private void appendYearRow(StringBuilder sb, int LL) {
-        sb.append("LATA"); // first column name
-        int startYear = 2015;
-        for (int i = 0; i < LL; i++) {
-            sb.append("\t").append(startYear + i);
-        }
-        sb.append("\n");
+    void executeScripts(List<String> scripts) throws Exception {
+        executeScripts(scripts, null);
     }
 
-    private void appendBindFields(StringBuilder sb, Set<String> printedFields, int LL) throws IllegalAccessException {
-        for (Field field : model.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(Bind.class) && !field.getName().equals("LL")) {
-                field.setAccessible(true);
-                sb.append(field.getName());
-                printedFields.add(field.getName());
+    // fileNames name the scripts in the metrics, null for scripts given as text
+    private void executeScripts(List<String> scripts, List<String> fileNames) throws Exception {
+        List<ScriptAnalysis> analyses = new ArrayList<>();
+        for (String script : scripts) {
+            analyses.add(ScriptCache.shared().analyze(script));
+        }
+        if (readsScriptResults(analyses)) {
+            // they see the results of the scripts before them only one after the other
+            for (int i = 0; i < scripts.size(); i++) {
+                executeScript(scripts.get(i), fileNames != null ? fileNames.get(i) : null);
+            }
+            return;
+        }
+        List<Set<Integer>> waitFor = DependencyGraph.scriptDependencies(analyses);
+
+        // every binding is prepared here before any script starts, the merge below changes the store
+        List<Binding> bindings = new ArrayList<>();
+        for (ScriptAnalysis analysis : analyses) {
+            bindings.add(binding(analysis));
+        }
+        List<CompletableFuture<Binding>> runs = new ArrayList<>();
+        for (int i = 0; i < scripts.size(); i++) {
+            CompletableFuture<?>[] before = waitFor.get(i).stream().map(runs::get).toArray(CompletableFuture[]::new);
+            String script = scripts.get(i);
+            Binding binding = bindings.get(i);
+            String name = scriptName(script, fileNames != null ? fileNames.get(i) : null);
+            runs.add(CompletableFuture.allOf(before).thenApplyAsync(ignored -> {
+                try (Phase phase = Metrics.start("runScript", modelName, name)) {
+                    return execute(script, binding);
+                }
+            }));
+        }
 
-                Object value = field.get(model);
-                if (value instanceof double[]) {
-                    double[] array = (double[]) value;
-                    for (int i = 0; i < LL; i++) {
-                        sb.append("\t").append(array[i]);
-                    }
+        // merged in script order, a script after a failed one it depends on fails too
+        Exception failure = null;
+        for (int i = 0; i < scripts.size(); i++) {
+            try {
+                getScriptVariables(runs.get(i).join(), analyses.get(i));
+                executed(scripts.get(i));
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
                 }
-                sb.append("\n");
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
-    private void appendScriptResults(StringBuilder sb, Set<String> printedFields, int LL) {
-        for (Map.Entry<String, Object> entry : results.entrySet()) {
-            String key = entry.getKey();
-            if (key.equals("LL") || printedFields.contains(key)) {
-                continue; // to skip LL or already printed fields
+    // whether a script reads a result of an earlier run or of an earlier script of the batch, or may read anything
+    private boolean readsScriptResults(List<ScriptAnalysis> analyses) {
+        Set<String> written = new HashSet<>();
+        for (ScriptAnalysis analysis : analyses) {
+            if (analysis.dynamic()) {
+                return true;
             }
-
-            sb.append(key);
-            Object value = entry.getValue();
-
-            if (value instanceof double[]) {
-                double[] array = (double[]) value;
-                for (int i = 0; i < array.length; i++) {
-                    sb.append("\t").append(array[i]);
+            for (String name : analysis.reads()) {
+                if (plan.indexOf(name) < 0 && (written.contains(name) || isScriptResult(name))) {
+                    return true;
                 }
             }
-            sb.append("\n");
+            written.addAll(analysis.writes());
         }
+        return false;
     }
 
-    private Binding prepareBinding() throws Exception {
-        Binding binding = new Binding();
+    private boolean isScriptResult(String name) {
+        int id = store.id(name);
+        return id >= 0 && !store.isModelColumn(id);
+    }
 
-        // @Bind fields available in the script
-        disableAccessCheck(binding);
+    // the file name, or for metrics the name the script class gets in ScriptCache
+    private static String scriptName(String script, String fileName) {
+        if (fileName != null || !Metrics.isActive()) {
+            return fileName;
+        }
+        return "Script_" + ScriptCache.hash(script).substring(0, 16);
+    }
+
+    private void evaluate(String script) {
+        ScriptAnalysis analysis = ScriptCache.shared().analyze(script);
 
-        // to add the LL field (number of years) to the binding
-        Field llField = model.getClass().getDeclaredField("LL");
-        ReflectionUtility.disableAccessCheck(llField); // Ensure access to private field
-        binding.setVariable("LL", llField.get(model));
+        // script variables
+        getScriptVariables(execute(script, binding(analysis)), analysis);
+    }
+
+    private Binding binding(ScriptAnalysis analysis) {
+        // a static script reads the model's fields itself, the binding only passes the results of earlier
+        // scripts it reads and receives what it assigns
+        return staticScripts ? prepareScriptResults(new Binding(), analysis) : prepareBinding(analysis);
+    }
 
+    // to run the script in its own binding, nothing of the controller is read and nothing changes except
+    // array elements it assigns, so scripts may run on other threads
+    private Binding execute(String script, Binding binding) {
+        // to execute the script, compiled once per distinct content
+        if (staticScripts) {
+            ScriptCache.shared().runStatic(script, model, binding);
+        } else {
+            ScriptCache.shared().run(script, binding);
+        }
         return binding;
     }
 
-    private void disableAccessCheck(Binding binding) throws IllegalAccessException {
-        for (Field field : model.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(Bind.class)) {
-                ReflectionUtility.disableAccessCheck(field); // access to private field
-                binding.setVariable(field.getName(), field.get(model));
+    // for what-if edits: replaces the values of an input series from period from on, then reruns the model
+    // from that period and only the scripts that read something that changed
+    public Controller updateSeries(String name, int from, double... values) {
+        int f = plan.indexOf(name);
+        if (f < 0 || !plan.isSeries(f)) {
+            throw new IllegalArgumentException("No series " + name + " in model " + plan.getModelClass().getSimpleName());
+        }
+        double[] series = plan.getSeries(model, f);
+        if (series == null) {
+            throw new IllegalStateException("Series " + name + " has no values, read the data first");
+        }
+        if (from < 0 || from + values.length > series.length) {
+            throw new IllegalArgumentException("Values for periods " + from + ".." + (from + values.length - 1)
+                    + " don't fit into " + name + " of " + series.length + " periods");
+        }
+        System.arraycopy(values, 0, series, from, values.length);
+        try {
+            recompute(name, from);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return this;
+    }
+
+    void recompute(String changedSeries, int from) throws Exception {
+        try (Phase phase = Metrics.start("recompute", modelName, changedSeries)) {
+            recomputeAffected(changedSeries, from);
+        }
+    }
+
+    private void recomputeAffected(String changedSeries, int from) {
+        List<ScriptAnalysis> analyses = new ArrayList<>();
+        for (String script : executedScripts) {
+            analyses.add(ScriptCache.shared().analyze(script));
+        }
+        DependencyGraph graph = new DependencyGraph(model, plan, analyses);
+
+        Set<String> changed = new LinkedHashSet<>();
+        changed.add(changedSeries);
+        Set<String> modelSeries = graph.modelSeriesAffectedBy(changed);
+        if (!modelSeries.isEmpty()) {
+            model.runFrom(from, modelSeries);
+            changed.addAll(modelSeries);
+        }
+        // scripts compute whole series, so the ones that read a changed variable run again
+        for (int i : graph.scriptsAffectedBy(changed)) {
+            evaluate(executedScripts.get(i));
+        }
+    }
+
+    public String getResultsAsTsv() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeResultsTo(sb);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return sb.toString();
+    }
+
+    public Controller writeResultsTo(Appendable out) throws IOException {
+        return writeResultsTo(out, ResultWriter.Format.TSV);
+    }
+
+    // TSV or CSV text, rows are written as they are produced
+    public Controller writeResultsTo(Appendable out, ResultWriter.Format format) throws IOException {
+        writeResults(ResultWriter.to(out, format));
+        return this;
+    }
+
+    public Controller writeResultsTo(WritableByteChannel out, ResultWriter.Format format) throws IOException {
+        writeResults(ResultWriter.to(out, format));
+        return this;
+    }
+
+    // the rows of writeResultsTo as they are, values may be null for a row that only has a name
+    public interface ResultRows {
+        void row(String name, double[] values, int count) throws IOException;
+    }
+
+    public Controller forEachResultRow(ResultRows rows) throws IOException {
+        shared = true;
+        forEachRow(rows);
+        return this;
+    }
+
+    private void forEachRow(ResultRows rows) throws IOException {
+        // fields annotated with @Bind, then script-generated results
+        SeriesStore series = store();
+        for (int id = 0; id < series.size(); id++) {
+            rows.row(series.name(id), series.column(id), series.count(id));
+        }
+    }
+
+    private void writeResults(ResultWriter writer) throws IOException {
+        try (Phase phase = Metrics.start("writeResults", modelName, null)) {
+            // the header row for years
+            writer.header(START_YEAR, getNumberOfYears());
+
+            forEachRow(writer::row);
+
+            writer.finish();
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.count("resultRows", modelName, getResultRowCount());
+        }
+    }
+
+    // number of rows writeResultsTo writes after the header
+    public int getResultRowCount() {
+        return store.size();
+    }
+
+    private int getNumberOfYears() {
+        return plan.getYears(model); // number of years
+    }
+
+    private Binding prepareBinding(ScriptAnalysis analysis) {
+        Binding binding = new Binding();
+
+        if (analysis.dynamic()) {
+            // @Bind fields and the LL field (number of years) available in the script, and the series of earlier scripts
+            plan.bindTo(binding, model);
+            for (int id = 0; id < store.size(); id++) {
+                if (!store.isModelColumn(id) && store.column(id) != null) {
+                    binding.setVariable(store.name(id), store.column(id));
+                }
+            }
+            return binding;
+        }
+        // only what the script reads
+        for (String name : analysis.reads()) {
+            if (name.equals("LL")) {
+                binding.setVariable("LL", getNumberOfYears());
+            } else {
+                int f = plan.indexOf(name);
+                if (f >= 0) {
+                    binding.setVariable(name, plan.get(model, f));
+                }
             }
         }
+        return prepareScriptResults(binding, analysis);
+    }
+
+    // the series earlier scripts assigned that the script reads
+    private Binding prepareScriptResults(Binding binding, ScriptAnalysis analysis) {
+        for (String name : analysis.reads()) {
+            if (plan.indexOf(name) < 0 && isScriptResult(name) && store.column(store.id(name)) != null) {
+                binding.setVariable(name, store.column(store.id(name)));
+            }
+        }
+        return binding;
     }
 
-    private void getScriptVariables(Binding binding) {
-        for (Object obj : binding.getVariables().entrySet()) {
-            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
-            String variableName = entry.getKey().toString();
-            Object variableValue = entry.getValue();
+    private void getScriptVariables(Binding binding, ScriptAnalysis analysis) {
+        // only what the script assigned, a script using the binding by name may have set anything
+        Iterable<?> names = analysis.dynamic() ? binding.getVariables().keySet() : analysis.writes();
+        for (Object name : names) {
+            String variableName = name.toString();
 
             // variables with names longer than 1 character
-            if (variableName.length() > 1) {
-                results.put(variableName, variableValue);
+            if (variableName.length() > 1 && binding.hasVariable(variableName)) {
+                // series are kept, other values only by name
+                store.putResult(variableName, binding.getVariable(variableName) instanceof double[] array ? array : null);
             }
         }
     }
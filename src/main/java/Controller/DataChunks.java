@@ -0,0 +1,245 @@
+package Controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// the data format of DataReader read a chunk of periods at a time: one pass finds the rows, then every
+// row is read through its own small buffer, so memory doesn't grow with the number of periods or the file size
+final class DataChunks implements AutoCloseable {
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+    private static final int ROW_BUFFER_SIZE = 64 * 1024; // also the longest value
+    private static final int MAX_NAME_LENGTH = 256;
+
+    private final FileChannel channel;
+    private final long years;
+    private final Row[] rows; // by plan field, null for fields without values in the file
+
+    private DataChunks(FileChannel channel, long years, Row[] rows) {
+        this.channel = channel;
+        this.years = years;
+        this.rows = rows;
+    }
+
+    static DataChunks open(Path file, BindingPlan plan) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return scan(channel, plan);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // the number of values in the LATA row
+    long getYears() {
+        return years;
+    }
+
+    boolean hasRow(int field) {
+        return rows[field] != null;
+    }
+
+    // the next count values of the field's row, a row shorter than the years repeats its last value
+    void read(int field, double[] values, int offset, int count) throws IOException {
+        Row row = rows[field];
+        for (int i = 0; i < count; i++) {
+            values[offset + i] = row.next() ? row.value : row.last;
+        }
+    }
+
+    // after the last period, fails for rows with more values than years like DataReader
+    void checkEnd() throws IOException {
+        for (Row row : rows) {
+            if (row != null && row.next()) {
+                throw new IllegalArgumentException("More values than years for " + row.name);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // one pass over the file for where the rows of bound series are and how many values LATA has,
+    // the last row of a name wins
+    private static DataChunks scan(FileChannel channel, BindingPlan plan) throws IOException {
+        Row[] rows = new Row[plan.size()];
+        long years = -1;
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] name = new byte[MAX_NAME_LENGTH];
+        int nameLength = 0;
+        int state = 0; // 0 before the name, 1 in the name, 2 between name and values, 3 in the values
+        long valuesStart = -1;
+        boolean isYears = false;
+        boolean inToken = false;
+        long tokens = 0;
+
+        long position = 0;
+        long size = channel.size();
+        while (position <= size) {
+            buffer.clear();
+            int read = position < size ? channel.read(buffer, position) : 0;
+            buffer.flip();
+            for (int i = 0; i <= read; i++) {
+                long p = position + i;
+                boolean lineEnd = i == read ? p == size : buffer.get(i) == '\n';
+                if (lineEnd) {
+                    if (valuesStart >= 0) {
+                        if (isYears) {
+                            years = tokens;
+                        } else {
+                            int field = seriesIndex(plan, name, nameLength);
+                            if (field >= 0) {
+                                rows[field] = new Row(channel, plan.name(field), valuesStart, p);
+                            }
+                        }
+                    }
+                    state = 0;
+                    nameLength = 0;
+                    valuesStart = -1;
+                    isYears = false;
+                    inToken = false;
+                    tokens = 0;
+                    continue;
+                }
+                if (i == read) {
+                    break;
+                }
+                byte b = buffer.get(i);
+                boolean whitespace = DataReader.isWhitespace(b);
+                switch (state) {
+                    case 0, 1 -> {
+                        if (!whitespace) {
+                            if (nameLength == MAX_NAME_LENGTH) {
+                                throw new IllegalArgumentException("Row name is longer than " + MAX_NAME_LENGTH + " bytes");
+                            }
+                            name[nameLength++] = b;
+                            state = 1;
+                        } else if (state == 1) {
+                            state = 2;
+                        }
+                    }
+                    case 2 -> {
+                        if (!whitespace) {
+                            valuesStart = p;
+                            isYears = nameLength == 4 && name[0] == 'L' && name[1] == 'A' && name[2] == 'T' && name[3] == 'A';
+                            tokens = 1;
+                            inToken = true;
+                            state = 3;
+                        }
+                    }
+                    default -> {
+                        if (isYears) {
+                            if (whitespace) {
+                                inToken = false;
+                            } else if (!inToken) {
+                                tokens++;
+                                inToken = true;
+                            }
+                        }
+                    }
+                }
+            }
+            if (read == 0) {
+                break;
+            }
+            position += read;
+        }
+        if (years < 0) {
+            throw new IllegalArgumentException("Data has no LATA row");
+        }
+        return new DataChunks(channel, years, rows);
+    }
+
+    private static int seriesIndex(BindingPlan plan, byte[] name, int length) {
+        String text = new String(name, 0, length, StandardCharsets.UTF_8);
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f) && plan.name(f).equals(text)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    // the values of one row, parsed in place from a buffer that is refilled as they are consumed
+    private static final class Row {
+        private final FileChannel channel;
+        private final String name;
+        private final long end; // the row's line end in the file
+        private final ByteBuffer buffer = ByteBuffer.allocate(ROW_BUFFER_SIZE);
+        private long next; // the file position of the first byte not in the buffer
+        double value;
+        double last;
+
+        Row(FileChannel channel, String name, long start, long end) {
+            this.channel = channel;
+            this.name = name;
+            this.end = end;
+            this.next = start;
+            buffer.limit(0);
+        }
+
+        // to parse the next value into value, false at the end of the row
+        boolean next() throws IOException {
+            while (true) {
+                while (buffer.hasRemaining() && DataReader.isWhitespace(buffer.get(buffer.position()))) {
+                    buffer.position(buffer.position() + 1);
+                }
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                if (!refill()) {
+                    return false;
+                }
+            }
+            int start = buffer.position();
+            int pos = start;
+            while (true) {
+                while (pos < buffer.limit() && !DataReader.isWhitespace(buffer.get(pos))) {
+                    pos++;
+                }
+                if (pos < buffer.limit() || next == end) {
+                    break;
+                }
+                // the value goes on past the buffer, moved to its start and read on
+                buffer.position(start);
+                pos -= start;
+                start = 0;
+                if (!refill()) {
+                    break;
+                }
+            }
+            value = DataReader.parseDouble(buffer, start, pos);
+            last = value;
+            buffer.position(pos);
+            return true;
+        }
+
+        // the unread bytes move to the start, the rest of the buffer is read from the file
+        private boolean refill() throws IOException {
+            if (next == end) {
+                return false;
+            }
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Value of " + name + " is longer than " + ROW_BUFFER_SIZE + " bytes");
+            }
+            int length = (int) Math.min(buffer.remaining(), end - next);
+            buffer.limit(buffer.position() + length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, next + length - buffer.remaining()) < 0) {
+                    throw new IOException("Data file ended before the row of " + name);
+                }
+            }
+            next += length;
+            buffer.flip();
+            return true;
+        }
+    }
+}
\ No newline at end of file
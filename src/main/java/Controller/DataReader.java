@@ -0,0 +1,266 @@
+package Controller;
+
+import Models.ArrayPool;
+import Models.BaseModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// reads the "NAME v1 v2 ..." data format straight from bytes into the model's double[] fields
+public final class DataReader {
+    // powers of ten that are exact doubles, used by the fast path of parseDouble
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_FAST_DIGITS = 15; // every 15 digit integer is an exact double
+
+    private DataReader() {}
+
+    public static void read(Path file, BaseModel model, BindingPlan plan) throws IOException {
+        read(file, model, plan, false);
+    }
+
+    // refill: the caller owns the model's arrays, series of the right length are filled in place instead of
+    // in new arrays; without it arrays handed out before keep their values
+    public static void read(Path file, BaseModel model, BindingPlan plan, boolean refill) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Data file is larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            read(data, model, plan, refill);
+        }
+    }
+
+    public static void read(ByteBuffer data, BaseModel model, BindingPlan plan) {
+        read(data, model, plan, false);
+    }
+
+    // the buffer is read between its position and limit, which are left unchanged
+    public static void read(ByteBuffer data, BaseModel model, BindingPlan plan, boolean refill) {
+        int start = data.position();
+        int end = data.limit();
+
+        // one pass to find the LATA row and the rows of bound series, the last row of a name wins
+        int yearsStart = -1, yearsEnd = -1;
+        int[] rowStart = new int[plan.size()];
+        int[] rowEnd = new int[plan.size()];
+        Arrays.fill(rowStart, -1);
+
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineEnd(data, lineStart, end);
+            int nameStart = skipWhitespace(data, lineStart, lineEnd);
+            int nameEnd = skipToken(data, nameStart, lineEnd);
+            int valuesStart = skipWhitespace(data, nameEnd, lineEnd);
+
+            if (valuesStart < lineEnd) { // rows with just a name are ignored
+                if (matches("LATA", data, nameStart, nameEnd)) {
+                    yearsStart = valuesStart;
+                    yearsEnd = lineEnd;
+                } else {
+                    int field = seriesIndex(plan, data, nameStart, nameEnd);
+                    if (field >= 0) {
+                        rowStart[field] = valuesStart;
+                        rowEnd[field] = lineEnd;
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (yearsStart < 0) {
+            throw new IllegalArgumentException("Data has no LATA row");
+        }
+
+        // field for number of years
+        int years = countTokens(data, yearsStart, yearsEnd);
+        plan.setYears(model, years);
+
+        // the model fields, filled in place when refilling and the existing array already has the right length
+        for (int f = 0; f < plan.size(); f++) {
+            if (rowStart[f] >= 0) {
+                double[] values = refill ? plan.getSeries(model, f) : null;
+                if (values == null || values.length != years) {
+                    values = ArrayPool.take(years); // fillSeries sets every period
+                }
+                fillSeries(data, rowStart[f], rowEnd[f], values, plan.name(f));
+                plan.setSeries(model, f, values);
+            }
+        }
+    }
+
+    static int countTokens(ByteBuffer data, int from, int end) {
+        int count = 0;
+        int pos = skipWhitespace(data, from, end);
+        while (pos < end) {
+            pos = skipWhitespace(data, skipToken(data, pos, end), end);
+            count++;
+        }
+        return count;
+    }
+
+    static void fillSeries(ByteBuffer data, int from, int lineEnd, double[] values, String name) {
+        int count = 0;
+        int pos = skipWhitespace(data, from, lineEnd);
+        while (pos < lineEnd) {
+            int tokenEnd = skipToken(data, pos, lineEnd);
+            if (count == values.length) {
+                throw new IllegalArgumentException("More values than years for " + name);
+            }
+            values[count++] = parseDouble(data, pos, tokenEnd);
+            pos = skipWhitespace(data, tokenEnd, lineEnd);
+        }
+
+        // remaining values with the last value
+        for (int i = count; i < values.length; i++) {
+            values[i] = values[count - 1];
+        }
+    }
+
+    // decimal numbers of up to 15 significant digits are converted exactly without allocating,
+    // anything else (long mantissas, big exponents, NaN, hex) goes through Double.parseDouble
+    static double parseDouble(ByteBuffer data, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        byte first = data.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0; // significant digits taken into the mantissa
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        while (pos < end && isDigit(data.get(pos))) {
+            int d = data.get(pos++) - '0';
+            anyDigit = true;
+            if (mantissa != 0 || d != 0) {
+                if (++digits > MAX_FAST_DIGITS) {
+                    return parseSlow(data, start, end);
+                }
+                mantissa = mantissa * 10 + d;
+            }
+        }
+        if (pos < end && data.get(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(data.get(pos))) {
+                int d = data.get(pos++) - '0';
+                anyDigit = true;
+                if (mantissa != 0 || d != 0) {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        return parseSlow(data, start, end);
+                    }
+                    mantissa = mantissa * 10 + d;
+                }
+                exponent--;
+            }
+        }
+        if (!anyDigit) {
+            return parseSlow(data, start, end);
+        }
+        if (pos < end && (data.get(pos) == 'e' || data.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (data.get(pos) == '-' || data.get(pos) == '+')) {
+                negativeExponent = data.get(pos) == '-';
+                pos++;
+            }
+            int explicit = 0;
+            int expDigits = 0;
+            while (pos < end && isDigit(data.get(pos))) {
+                if (++expDigits > 4) {
+                    return parseSlow(data, start, end);
+                }
+                explicit = explicit * 10 + (data.get(pos++) - '0');
+            }
+            if (expDigits == 0) {
+                return parseSlow(data, start, end);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (pos != end) {
+            return parseSlow(data, start, end); // suffixes like 'd', or not a number at all
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return parseSlow(data, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(ByteBuffer data, int start, int end) {
+        byte[] token = new byte[end - start];
+        data.get(start, token);
+        return Double.parseDouble(new String(token, StandardCharsets.ISO_8859_1));
+    }
+
+    static int seriesIndex(BindingPlan plan, ByteBuffer data, int start, int end) {
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f) && matches(plan.name(f), data, start, end)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    static boolean matches(String name, ByteBuffer data, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != data.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int lineEnd(ByteBuffer data, int from, int end) {
+        int pos = from;
+        while (pos < end && data.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    static int skipWhitespace(ByteBuffer data, int from, int end) {
+        int pos = from;
+        while (pos < end && isWhitespace(data.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    static int skipToken(ByteBuffer data, int from, int end) {
+        int pos = from;
+        while (pos < end && !isWhitespace(data.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package Controller;
+
+import Models.BaseModel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// what has to be recomputed after a series changes: the model's series through the model's own
+// dependencies, script results through what each script reads (see ScriptAnalysis)
+public final class DependencyGraph {
+    private final Set<String> modelSeries = new LinkedHashSet<>(); // @Bind series
+    private final Map<String, List<String>> readers = new HashMap<>(); // series -> computed series reading it
+    private final boolean opaqueModel; // no dependencies given, every series may depend on every other
+    private final List<ScriptAnalysis> scripts;
+
+    public DependencyGraph(BaseModel model, BindingPlan plan, List<ScriptAnalysis> scripts) {
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f)) {
+                modelSeries.add(plan.name(f));
+            }
+        }
+        Map<String, Set<String>> dependencies = model.dependencies();
+        opaqueModel = dependencies == null;
+        if (dependencies != null) {
+            for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                for (String source : entry.getValue()) {
+                    readers.computeIfAbsent(source, s -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+        }
+        this.scripts = List.copyOf(scripts);
+    }
+
+    // the series the model recomputes differently when the changed ones change, empty if the model needn't run
+    public Set<String> modelSeriesAffectedBy(Collection<String> changed) {
+        Set<String> affected = new LinkedHashSet<>();
+        if (opaqueModel) {
+            for (String name : changed) {
+                if (modelSeries.contains(name)) {
+                    affected.addAll(modelSeries);
+                    break;
+                }
+            }
+            return affected;
+        }
+        Deque<String> pending = new ArrayDeque<>(changed);
+        while (!pending.isEmpty()) {
+            for (String reader : readers.getOrDefault(pending.poll(), List.of())) {
+                if (affected.add(reader)) {
+                    pending.add(reader);
+                }
+            }
+        }
+        return affected;
+    }
+
+    // indexes of the scripts to rerun in the order they ran, a script that reruns changes what it writes
+    // for the scripts after it
+    public List<Integer> scriptsAffectedBy(Collection<String> changed) {
+        Set<String> dirty = new LinkedHashSet<>(changed);
+        List<Integer> rerun = new ArrayList<>();
+        for (int i = 0; i < scripts.size(); i++) {
+            ScriptAnalysis script = scripts.get(i);
+            if (readsAny(script, dirty)) {
+                rerun.add(i);
+                dirty.addAll(script.writes());
+            }
+        }
+        return rerun;
+    }
+
+    // everything downstream of one series, model series and script results
+    public Set<String> affectedBy(String series) {
+        Set<String> affected = new LinkedHashSet<>(modelSeriesAffectedBy(List.of(series)));
+        Set<String> changed = new LinkedHashSet<>(affected);
+        changed.add(series);
+        for (int i : scriptsAffectedBy(changed)) {
+            affected.addAll(scripts.get(i).writes());
+        }
+        return affected;
+    }
+
+    // for each script, the earlier scripts it has to wait for when scripts run concurrently: scripts only
+    // share the model's arrays, so only a script that may change an array (ScriptAnalysis.mutates) orders the
+    // scripts touching it, and those run in their order
+    public static List<Set<Integer>> scriptDependencies(List<ScriptAnalysis> scripts) {
+        List<Set<Integer>> waitFor = new ArrayList<>();
+        for (int j = 0; j < scripts.size(); j++) {
+            ScriptAnalysis later = scripts.get(j);
+            Set<Integer> before = new LinkedHashSet<>();
+            for (int i = 0; i < j; i++) {
+                ScriptAnalysis earlier = scripts.get(i);
+                if (earlier.dynamic() || later.dynamic()
+                        || touchesAny(later, earlier.mutates()) || touchesAny(earlier, later.mutates())) {
+                    before.add(i);
+                }
+            }
+            waitFor.add(before);
+        }
+        return waitFor;
+    }
+
+    private static boolean touchesAny(ScriptAnalysis script, Set<String> mutated) {
+        for (String name : mutated) {
+            if (script.reads().contains(name) || script.mutates().contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean readsAny(ScriptAnalysis script, Set<String> dirty) {
+        for (String name : dirty) {
+            if (script.mayRead(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package Controller;
+
+// writes doubles exactly as Double.toString does into a char buffer, without creating a String per value
+// (one instance per writer, it is not thread-safe)
+public final class DoubleFormat {
+    public static final int MAX_LENGTH = 32; // enough for any Double.toString result
+
+    private static final long[] POWERS_OF_TEN = new long[16];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[16];
+    // below 2^51 a scaled value is within a quarter of the exact product, so only its floor and ceiling can round-trip
+    private static final double MAX_SCALED = 2251799813685248.0;
+    // longer fractions (typically computed values) are cheaper to leave to StringBuilder than to search for
+    private static final int MAX_FAST_FRACTION_DIGITS = 8;
+
+    static {
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            DOUBLE_POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final StringBuilder scratch = new StringBuilder(MAX_LENGTH);
+
+    // to write the value into buf from pos, returns the position after the last char
+    public int format(double value, char[] buf, int pos) {
+        double abs = Math.abs(value);
+
+        // Double.toString uses plain notation only in [1e-3, 1e7)
+        if (abs >= 1e-3 && abs < 1e7) {
+            // the fewest fraction digits whose decimal parses back to the same double is what Double.toString prints
+            for (int k = 1; k <= MAX_FAST_FRACTION_DIGITS; k++) {
+                double scaled = abs * DOUBLE_POWERS_OF_TEN[k];
+                if (scaled >= MAX_SCALED) {
+                    break;
+                }
+                long floor = (long) scaled;
+                double fraction = scaled - floor;
+                double tolerance = scaled * 1e-15; // a few ulps, a round-tripping decimal is never further away
+                if (fraction > tolerance && fraction < 1 - tolerance) {
+                    continue; // cheap rejection without the divisions below
+                }
+                boolean floorMatches = floor / DOUBLE_POWERS_OF_TEN[k] == abs;
+                boolean ceilingMatches = (floor + 1) / DOUBLE_POWERS_OF_TEN[k] == abs;
+
+                if (floorMatches != ceilingMatches) {
+                    if (value < 0) {
+                        buf[pos++] = '-';
+                    }
+                    return writePlain(floorMatches ? floor : floor + 1, k, buf, pos);
+                }
+                if (floorMatches) {
+                    break; // both round-trip, picking the closer one needs exact arithmetic
+                }
+            }
+        }
+
+        // long mantissas, scientific notation, zeros and non-finite values, same digits as StringBuilder.append(double)
+        scratch.setLength(0);
+        scratch.append(value);
+        int length = scratch.length();
+        scratch.getChars(0, length, buf, pos);
+        return pos + length;
+    }
+
+    // digits * 10^-fractionDigits in plain notation
+    private static int writePlain(long digits, int fractionDigits, char[] buf, int pos) {
+        long integerPart = digits / POWERS_OF_TEN[fractionDigits];
+        long fraction = digits % POWERS_OF_TEN[fractionDigits];
+
+        pos = writeLong(integerPart, buf, pos);
+        buf[pos++] = '.';
+        for (int i = fractionDigits - 1; i >= 0; i--) {
+            buf[pos + i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return pos + fractionDigits;
+    }
+
+    public static int writeLong(long value, char[] buf, int pos) {
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            length++;
+        }
+        for (int i = pos + length - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + length;
+    }
+}
@@ -0,0 +1,144 @@
+package Controller;
+
+import Models.Panel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// the panel data format: the rows of the single data format (see DataReader) for every entity, each
+// entity's rows after an "ENTITY name" line, and rows before the first ENTITY line apply to every entity
+// that has no row of that name itself:
+//   LATA 2015 2016 2017
+//   twKI 1.03
+//   ENTITY north
+//   KI 1023752.2
+//   ENTITY south
+//   KI 512000 520000 530000
+final class PanelReader {
+    private PanelReader() {}
+
+    static Panel read(Path file, BindingPlan plan) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Data file is larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(data, plan);
+        }
+    }
+
+    // the buffer is read between its position and limit, which are left unchanged
+    static Panel read(ByteBuffer data, BindingPlan plan) {
+        int start = data.position();
+        int end = data.limit();
+
+        // one pass for the LATA row, the entities and the rows of bound series as (entity or -1, field, start, end)
+        int yearsStart = -1, yearsEnd = -1;
+        List<String> entities = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int[] rows = new int[64];
+        int rowCount = 0;
+
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = DataReader.lineEnd(data, lineStart, end);
+            int nameStart = DataReader.skipWhitespace(data, lineStart, lineEnd);
+            int nameEnd = DataReader.skipToken(data, nameStart, lineEnd);
+            int valuesStart = DataReader.skipWhitespace(data, nameEnd, lineEnd);
+
+            if (valuesStart < lineEnd) { // rows with just a name are ignored
+                if (DataReader.matches("LATA", data, nameStart, nameEnd)) {
+                    yearsStart = valuesStart;
+                    yearsEnd = lineEnd;
+                } else if (DataReader.matches("ENTITY", data, nameStart, nameEnd)) {
+                    int entityEnd = DataReader.skipToken(data, valuesStart, lineEnd);
+                    byte[] name = new byte[entityEnd - valuesStart];
+                    data.get(valuesStart, name);
+                    String entity = new String(name, StandardCharsets.UTF_8);
+                    if (!seen.add(entity)) {
+                        throw new IllegalArgumentException("Entity " + entity + " appears twice");
+                    }
+                    entities.add(entity);
+                } else {
+                    int field = DataReader.seriesIndex(plan, data, nameStart, nameEnd);
+                    if (field >= 0) {
+                        if (rowCount + 4 > rows.length) {
+                            rows = Arrays.copyOf(rows, rows.length * 2);
+                        }
+                        rows[rowCount++] = entities.size() - 1;
+                        rows[rowCount++] = field;
+                        rows[rowCount++] = valuesStart;
+                        rows[rowCount++] = lineEnd;
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (yearsStart < 0) {
+            throw new IllegalArgumentException("Data has no LATA row");
+        }
+        if (entities.isEmpty()) {
+            throw new IllegalArgumentException("Panel data has no ENTITY row");
+        }
+
+        int years = DataReader.countTokens(data, yearsStart, yearsEnd);
+        int n = entities.size();
+        Panel panel = new Panel(entities, years);
+
+        // a series any entity has needs a row for every entity, its own or one before the first ENTITY
+        boolean[] hasDefault = new boolean[plan.size()];
+        boolean[] hasRow = new boolean[plan.size() * n];
+        for (int r = 0; r < rowCount; r += 4) {
+            if (rows[r] < 0) {
+                hasDefault[rows[r + 1]] = true;
+            } else {
+                hasRow[rows[r + 1] * n + rows[r]] = true;
+            }
+        }
+        for (int r = 0; r < rowCount; r += 4) {
+            int field = rows[r + 1];
+            if (!hasDefault[field]) {
+                for (int e = 0; e < n; e++) {
+                    if (!hasRow[field * n + e]) {
+                        throw new IllegalArgumentException("Entity " + entities.get(e) + " has no row for " + plan.name(field));
+                    }
+                }
+                hasDefault[field] = true; // checked once
+            }
+        }
+
+        // rows before the first entity go to every entity first, so the entities' own rows replace them
+        double[] values = new double[years];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int r = 0; r < rowCount; r += 4) {
+                int entity = rows[r];
+                if ((entity < 0) != (pass == 0)) {
+                    continue;
+                }
+                int field = rows[r + 1];
+                String name = plan.name(field);
+                DataReader.fillSeries(data, rows[r + 2], rows[r + 3], values, name);
+                double[] all = panel.create(name);
+                if (entity >= 0) {
+                    panel.setEntity(name, entity, values);
+                    continue;
+                }
+                for (int t = 0; t < years; t++) {
+                    Arrays.fill(all, t * n, t * n + n, values[t]);
+                }
+            }
+        }
+        return panel;
+    }
+}
\ No newline at end of file
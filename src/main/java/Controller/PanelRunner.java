@@ -0,0 +1,177 @@
+package Controller;
+
+import Metrics.Metrics;
+import Metrics.Phase;
+import Models.BaseModel;
+import Models.Panel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// one model over every entity of a panel (see PanelReader for the data format) in one pass instead of a
+// Controller per entity: blocks of entities run in parallel, each through the model's panel kernel
+// (BaseModel.runPanel) or, for models without one, entity by entity through run() on one model per block;
+// the results of each entity are the rows a Controller would write for that entity's data
+public class PanelRunner {
+    public static final int DEFAULT_BLOCK = 1024; // entities per task
+    private static final int TILE_VALUES = 1 << 18; // doubles gathered at once when writing
+
+    private final String modelName;
+    private int block = DEFAULT_BLOCK;
+
+    public PanelRunner(String modelName) {
+        this.modelName = modelName;
+    }
+
+    public PanelRunner block(int entities) {
+        if (entities < 1) {
+            throw new IllegalArgumentException("block must be positive: " + entities);
+        }
+        this.block = entities;
+        return this;
+    }
+
+    public Panel read(String dataFile) throws IOException {
+        BindingPlan plan = BindingPlan.of(Controller.createModel(modelName));
+        try (Phase phase = Metrics.start("readPanel", modelName, dataFile)) {
+            return PanelReader.read(Paths.get(dataFile), plan);
+        }
+    }
+
+    // data that is already in memory, between the buffer's position and limit
+    public Panel read(ByteBuffer data) {
+        BindingPlan plan = BindingPlan.of(Controller.createModel(modelName));
+        try (Phase phase = Metrics.start("readPanel", modelName, null)) {
+            return PanelReader.read(data, plan);
+        }
+    }
+
+    public Panel run(String dataFile) throws IOException {
+        return run(read(dataFile));
+    }
+
+    // computes the panel's series in place and returns it
+    public Panel run(Panel panel) {
+        BaseModel model = Controller.createModel(modelName);
+        BindingPlan plan = BindingPlan.of(model);
+        int n = panel.getEntities();
+        int blocks = (n + block - 1) / block;
+
+        try (Phase phase = Metrics.start("runPanel", modelName, null)) {
+            Map<String, Set<String>> dependencies = model.dependencies();
+            if (dependencies != null) {
+                for (String name : dependencies.keySet()) {
+                    int f = plan.indexOf(name);
+                    if (f >= 0 && plan.isSeries(f)) {
+                        panel.create(name);
+                    }
+                }
+            }
+
+            // the first block tells whether the model has a kernel, the kernel keeps no state in the model
+            if (model.runPanel(panel, 0, Math.min(block, n))) {
+                IntStream.range(1, blocks).parallel()
+                        .forEach(b -> model.runPanel(panel, b * block, Math.min(n, (b + 1) * block)));
+            } else {
+                // the first entity alone, so the series the model computes exist before the blocks write them
+                runEntities(model, plan, panel, 0, 1);
+                IntStream.range(0, blocks).parallel().forEach(b -> runEntities(Controller.createModel(modelName), plan, panel,
+                        Math.max(1, b * block), Math.min(n, (b + 1) * block)));
+            }
+        }
+        Metrics.count("panelEntities", modelName, n);
+        return panel;
+    }
+
+    // one entity after the other on one model, through copies of the entities' periods
+    private static void runEntities(BaseModel model, BindingPlan plan, Panel panel, int from, int to) {
+        int years = panel.getYears();
+        for (int e = from; e < to; e++) {
+            for (int f = 0; f < plan.size(); f++) {
+                if (!plan.isSeries(f)) {
+                    continue;
+                }
+                double[] values = null;
+                if (panel.has(plan.name(f))) {
+                    values = new double[years];
+                    panel.copyEntity(plan.name(f), e, values);
+                }
+                plan.setSeries(model, f, values);
+            }
+            plan.setYears(model, years);
+            model.run();
+            for (int f = 0; f < plan.size(); f++) {
+                if (!plan.isSeries(f)) {
+                    continue;
+                }
+                double[] values = plan.getSeries(model, f);
+                if (values != null) {
+                    if (e == 0) {
+                        panel.create(plan.name(f));
+                    }
+                    if (panel.has(plan.name(f))) {
+                        panel.setEntity(plan.name(f), e, values);
+                    }
+                }
+            }
+        }
+    }
+
+    public void writeResultsTo(Panel panel, Appendable out, ResultWriter.Format format) throws IOException {
+        writeResults(panel, ResultWriter.to(out, format));
+    }
+
+    public void writeResultsTo(Panel panel, WritableByteChannel out, ResultWriter.Format format) throws IOException {
+        writeResults(panel, ResultWriter.to(out, format));
+    }
+
+    // the year header once, then for each entity an ENTITY row and the rows of writeResultsTo;
+    // entities are gathered a tile at a time, reading each period's values of the tile together
+    private void writeResults(Panel panel, ResultWriter writer) throws IOException {
+        BindingPlan plan = BindingPlan.of(Controller.createModel(modelName));
+        int n = panel.getEntities();
+        int years = panel.getYears();
+        int fields = plan.size();
+        int tile = Math.max(1, Math.min(64, TILE_VALUES / Math.max(1, fields * years)));
+        double[][][] values = new double[fields][][];
+        for (int f = 0; f < fields; f++) {
+            if (panel.has(plan.name(f)) && plan.isSeries(f)) {
+                values[f] = new double[tile][years];
+            }
+        }
+
+        try (Phase phase = Metrics.start("writePanel", modelName, null)) {
+            writer.header(Controller.START_YEAR, years);
+            for (int first = 0; first < n; first += tile) {
+                int count = Math.min(tile, n - first);
+                for (int f = 0; f < fields; f++) {
+                    if (values[f] == null) {
+                        continue;
+                    }
+                    double[] all = panel.series(plan.name(f));
+                    double[][] gathered = values[f];
+                    for (int t = 0; t < years; t++) {
+                        int row = t * n + first;
+                        for (int i = 0; i < count; i++) {
+                            gathered[i][t] = all[row + i];
+                        }
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    writer.entity(panel.entity(first + i));
+                    for (int f = 0; f < fields; f++) {
+                        if (!plan.name(f).equals("LL")) {
+                            writer.row(plan.name(f), values[f] != null ? values[f][i] : null, years);
+                        }
+                    }
+                }
+            }
+            writer.finish();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package Controller;
+
+import Models.ArrayPool;
+import org.codehaus.groovy.ast.ClassCodeExpressionTransformer;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ArrayExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+
+import java.util.List;
+
+// "new double[n]" in scripts as ArrayPool.zeroed(n): on a controller that pools arrays (Controller.poolArrays)
+// a script run again after reset gets the arrays of its previous run back, zeroed as a new array would be,
+// anywhere else zeroed allocates; arrays with initializers or more than one dimension are left alone
+final class PooledArrays extends CompilationCustomizer {
+    private static final ClassNode POOL = ClassHelper.make(ArrayPool.class);
+
+    PooledArrays() {
+        super(CompilePhase.CANONICALIZATION); // after StaticScriptLoader has typed the outputs from the array expressions
+    }
+
+    @Override
+    public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+        new ClassCodeExpressionTransformer() {
+            @Override
+            protected SourceUnit getSourceUnit() {
+                return source;
+            }
+
+            @Override
+            public Expression transform(Expression expression) {
+                if (expression instanceof ArrayExpression array && isNewDoubles(array)) {
+                    Expression length = transform(array.getSizeExpression().get(0));
+                    Expression call = new StaticMethodCallExpression(POOL, "zeroed",
+                            new ArgumentListExpression(CastExpression.asExpression(ClassHelper.int_TYPE, length)));
+                    setSourcePosition(call, expression);
+                    return call;
+                }
+                return super.transform(expression);
+            }
+        }.visitClass(classNode);
+    }
+
+    private static boolean isNewDoubles(ArrayExpression array) {
+        List<Expression> sizes = array.getSizeExpression();
+        return sizes != null && sizes.size() == 1 && array.getElementType().equals(ClassHelper.double_TYPE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+package Controller;
+
+import Equations.EquationModels;
+import Metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// memoized runs of (model, data, scripts): the key is a hash of the model's bytecode, the parsed @Bind values and
+// the script hashes, the value is a Snapshot of the finished controller, in memory up to a number of bytes (least
+// recently used first out) and optionally as files in a directory; a hit returns a controller without running
+// anything. Two threads missing on the same key at once both run it
+public final class ResultCache {
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    // for a model whose bytecode can't be found, keys of this process only so files of others never match
+    private static final byte[] UNKNOWN_DEFINITION = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+    private static final ClassValue<byte[]> DEFINITIONS = new ClassValue<>() {
+        @Override
+        protected byte[] computeValue(Class<?> modelClass) {
+            return definition(modelClass);
+        }
+    };
+
+    private final long maxMemoryBytes;
+    private final Path directory; // null without a disk tier
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true); // in access order
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null);
+    }
+
+    // the directory is created if needed, its snapshots are kept between processes
+    public ResultCache(long maxMemoryBytes, Path directory) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes must not be negative: " + maxMemoryBytes);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot create cache directory " + directory, e);
+            }
+        }
+    }
+
+    // the same controller readDataFrom, runModel and runScriptFromFile for every script would give
+    public Controller run(String modelName, String dataFile, List<String> scriptFiles) throws Exception {
+        Controller controller = new Controller(modelName);
+        controller.loadData(dataFile);
+        List<String> scripts = new ArrayList<>(scriptFiles.size());
+        for (String scriptFile : scriptFiles) {
+            scripts.add(Controller.readScript(scriptFile));
+        }
+        String key = key(controller, scripts);
+
+        byte[] cached = getFromMemory(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            Metrics.count("resultCacheMemoryHits", modelName, 1);
+            return Snapshot.read(ByteBuffer.wrap(cached)).toController();
+        }
+        Path file = directory != null ? directory.resolve(key + ".snap") : null;
+        if (file != null && Files.exists(file)) {
+            try {
+                byte[] bytes = Files.readAllBytes(file);
+                Controller restored = Snapshot.read(ByteBuffer.wrap(bytes)).toController();
+                diskHits.incrementAndGet();
+                Metrics.count("resultCacheDiskHits", modelName, 1);
+                putInMemory(key, bytes);
+                return restored;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file); // damaged or from an incompatible build, computed again
+            }
+        }
+
+        misses.incrementAndGet();
+        Metrics.count("resultCacheMisses", modelName, 1);
+        controller.runModel();
+        for (int i = 0; i < scripts.size(); i++) {
+            controller.executeScript(scripts.get(i), scriptFiles.get(i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Snapshot.write(controller, Channels.newChannel(out));
+        byte[] bytes = out.toByteArray();
+        putInMemory(key, bytes);
+        if (file != null) {
+            // written aside and moved, so a reader never sees half a file
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        return controller;
+    }
+
+    public Controller run(String modelName, String dataFile, String... scriptFiles) throws Exception {
+        return run(modelName, dataFile, List.of(scriptFiles));
+    }
+
+    // SHA-256 of the model's definition, the number of years, every @Bind series as read and the script hashes
+    static String key(Controller controller, List<String> scripts) {
+        MessageDigest digest = sha256();
+        BindingPlan plan = controller.getBindingPlan();
+        digest.update(DEFINITIONS.get(plan.getModelClass())); // not the name, hidden classes get a new one per process
+        ByteBuffer bytes = ByteBuffer.allocate(HASH_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(plan.getYears(controller.model()));
+        for (int f = 0; f < plan.size(); f++) {
+            if (!plan.isSeries(f)) {
+                continue;
+            }
+            digest.update(bytes.flip());
+            bytes.clear();
+            digest.update(plan.name(f).getBytes(StandardCharsets.UTF_8));
+            double[] values = plan.getSeries(controller.model(), f);
+            bytes.putInt(values != null ? values.length : -1);
+            if (values != null) {
+                for (int from = 0; from < values.length; ) {
+                    int n = Math.min(values.length - from, bytes.remaining() / Double.BYTES);
+                    bytes.asDoubleBuffer().put(values, from, n);
+                    bytes.position(bytes.position() + n * Double.BYTES);
+                    from += n;
+                    if (!bytes.hasRemaining() || bytes.remaining() < Double.BYTES) {
+                        digest.update(bytes.flip());
+                        bytes.clear();
+                    }
+                }
+            }
+        }
+        digest.update(bytes.flip());
+        for (String script : scripts) {
+            digest.update(ScriptCache.hash(script).getBytes(StandardCharsets.US_ASCII));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // SHA-256 of the bytecode of the model class and its superclasses, so a model changed and compiled again,
+    // or an equation model defined again from another .eq file, doesn't find the results of the old one
+    private static byte[] definition(Class<?> modelClass) {
+        MessageDigest digest = sha256();
+        for (Class<?> type = modelClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            byte[] bytes = EquationModels.classBytes(type);
+            if (bytes == null) {
+                bytes = classFile(type);
+            }
+            digest.update(bytes != null ? bytes : UNKNOWN_DEFINITION);
+        }
+        return digest.digest();
+    }
+
+    private static byte[] classFile(Class<?> type) {
+        String resource = type.getName().replace('.', '/') + ".class";
+        ClassLoader loader = type.getClassLoader();
+        try (InputStream in = loader != null ? loader.getResourceAsStream(resource) : ClassLoader.getSystemResourceAsStream(resource)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private synchronized byte[] getFromMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void putInMemory(String key, byte[] bytes) {
+        if (bytes.length > maxMemoryBytes) {
+            return;
+        }
+        byte[] previous = memory.put(key, bytes);
+        memoryBytes += bytes.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes) {
+            memoryBytes -= eldest.next().getValue().length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    // hits of either tier per lookup, 0 before the first
+    public double getHitRate() {
+        long hits = getMemoryHits() + getDiskHits();
+        long lookups = hits + getMisses();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int getMemoryEntries() {
+        return memory.size();
+    }
+
+    // only the memory tier, files stay
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT, "ResultCache[entries=%d, bytes=%d, memoryHits=%d, diskHits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+                getMemoryEntries(), getMemoryBytes(), getMemoryHits(), getDiskHits(), getMisses(), getEvictions(), getHitRate());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package Controller;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// streams result rows to a text Appendable or a byte channel, one row at a time
+public final class ResultWriter {
+    public enum Format { TSV, CSV, BINARY }
+
+    // binary layout, little-endian: magic, version, years, start year, then rows of
+    // (short name length, UTF-8 name, int value count or -1 for a row without values, doubles)
+    // and a short -1 after the last row; panel results put a short -2 and the entity's name as a
+    // string before the rows of each entity
+    public static final int BINARY_MAGIC = 0x524D5345; // "ESMR"
+    public static final int BINARY_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private final char separator;
+    private final Appendable text; // set for text output to an Appendable
+    private final WritableByteChannel channel; // set for output to a channel
+    private final ByteBuffer bytes;
+
+    private final DoubleFormat doubleFormat = new DoubleFormat();
+    private final char[] chars = new char[DoubleFormat.MAX_LENGTH];
+
+    private ResultWriter(Format format, Appendable text, WritableByteChannel channel) {
+        this.format = format;
+        this.separator = format == Format.CSV ? ',' : '\t';
+        this.text = text;
+        this.channel = channel;
+        this.bytes = channel != null ? ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN) : null;
+    }
+
+    public static ResultWriter to(Appendable out, Format format) {
+        if (format == Format.BINARY) {
+            throw new IllegalArgumentException("Binary results need a byte channel");
+        }
+        return new ResultWriter(format, out, null);
+    }
+
+    public static ResultWriter to(WritableByteChannel out, Format format) {
+        return new ResultWriter(format, null, out);
+    }
+
+    public void header(int startYear, int years) throws IOException {
+        if (format == Format.BINARY) {
+            ensure(16);
+            bytes.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(years).putInt(startYear);
+            return;
+        }
+        writeName("LATA"); // first column name
+        for (int i = 0; i < years; i++) {
+            writeChar(separator);
+            writeChars(DoubleFormat.writeLong(startYear + i, chars, 0));
+        }
+        writeChar('\n');
+    }
+
+    // values may be null for a row that only has a name
+    public void row(String name, double[] values, int count) throws IOException {
+        if (format == Format.BINARY) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            ensure(6 + encoded.length);
+            bytes.putShort((short) encoded.length).put(encoded).putInt(values != null ? count : -1);
+            if (values != null) {
+                for (int i = 0; i < count; i++) {
+                    ensure(8);
+                    bytes.putDouble(values[i]);
+                }
+            }
+            return;
+        }
+        writeName(name);
+        if (values != null) {
+            for (int i = 0; i < count; i++) {
+                writeChar(separator);
+                writeChars(doubleFormat.format(values[i], chars, 0));
+            }
+        }
+        writeChar('\n');
+    }
+
+    // the rows after this are the results of one entity of a panel (see PanelRunner), "ENTITY name" in text
+    public void entity(String name) throws IOException {
+        if (format == Format.BINARY) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + encoded.length);
+            bytes.putShort((short) -2).putShort((short) encoded.length).put(encoded);
+            return;
+        }
+        writeName("ENTITY");
+        writeChar(separator);
+        writeName(name);
+        writeChar('\n');
+    }
+
+    // to flush buffered bytes, the Appendable itself is left open
+    public void finish() throws IOException {
+        if (format == Format.BINARY) {
+            ensure(2);
+            bytes.putShort((short) -1);
+        }
+        if (channel != null) {
+            flush();
+        } else if (text instanceof Writer writer) {
+            writer.flush();
+        }
+    }
+
+    private void writeName(String name) throws IOException {
+        if (text != null) {
+            text.append(name);
+            return;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                // not plain ASCII, encode the whole name at once
+                byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                for (byte b : encoded) {
+                    ensure(1);
+                    bytes.put(b);
+                }
+                return;
+            }
+        }
+        for (int i = 0; i < name.length(); i++) {
+            ensure(1);
+            bytes.put((byte) name.charAt(i));
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (text != null) {
+            text.append(c);
+        } else {
+            ensure(1);
+            bytes.put((byte) c);
+        }
+    }
+
+    // the first length chars of the scratch buffer, always ASCII
+    private void writeChars(int length) throws IOException {
+        if (text instanceof StringBuilder sb) {
+            sb.append(chars, 0, length);
+        } else if (text instanceof Writer writer) {
+            writer.write(chars, 0, length);
+        } else if (text != null) {
+            for (int i = 0; i < length; i++) {
+                text.append(chars[i]);
+            }
+        } else {
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                bytes.put((byte) chars[i]);
+            }
+        }
+    }
+
+    private void ensure(int needed) throws IOException {
+        if (bytes.remaining() < needed) {
+            flush();
+            if (bytes.remaining() < needed) {
+                throw new IOException("Row does not fit into the write buffer: " + needed + " bytes");
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
\ No newline at end of file
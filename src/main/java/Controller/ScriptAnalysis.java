@@ -0,0 +1,275 @@
+package Controller;
+
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.syntax.Types;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// which binding variables a script reads and which it assigns, found from its syntax tree:
+// "ZDEKS = new double[LL]; for (i = 0; i < LL; i++) ZDEKS[i] = EKS[i] / PKB[i]" reads LL, EKS and PKB
+// and writes ZDEKS and i; a variable counts as read only if the script uses it before assigning it,
+// and as mutated if the script may change the object of a variable it didn't create (a model series, for
+// example): assigning or incrementing its elements, or letting it escape where it can be changed unseen,
+// as another variable's value, a method argument or the receiver of a method call
+public record ScriptAnalysis(Set<String> reads, Set<String> writes, Set<String> mutates, boolean dynamic) {
+    private static final Set<String> DYNAMIC_NAMES = Set.of("binding", "evaluate", "setProperty", "getProperty");
+
+    public ScriptAnalysis {
+        reads = Collections.unmodifiableSet(reads);
+        writes = Collections.unmodifiableSet(writes);
+        mutates = Collections.unmodifiableSet(mutates);
+    }
+
+    // a dynamic script touches the binding by name at runtime, so any variable may be read or written
+    public boolean mayRead(String variable) {
+        return dynamic || reads.contains(variable);
+    }
+
+    public static ScriptAnalysis of(String scriptText) {
+        CompilationUnit unit = new CompilationUnit();
+        unit.addSource("Analyzed.groovy", scriptText);
+        unit.compile(Phases.CONVERSION);
+        ModuleNode module = unit.getAST().getModules().get(0);
+
+        Visitor visitor = new Visitor();
+        module.getStatementBlock().visit(visitor);
+        for (MethodNode method : module.getMethods()) { // methods declared in the script
+            method.getCode().visit(visitor);
+        }
+        return new ScriptAnalysis(visitor.reads, visitor.writes, visitor.mutates, visitor.dynamic);
+    }
+
+    private static final class Visitor extends CodeVisitorSupport {
+        private final Set<String> reads = new LinkedHashSet<>();
+        private final Set<String> writes = new LinkedHashSet<>();
+        private final Set<String> mutates = new LinkedHashSet<>();
+        private final Set<String> locals = new HashSet<>(); // declared with def or a type, not binding variables
+        private boolean dynamic;
+
+        @Override
+        public void visitDeclarationExpression(DeclarationExpression expression) {
+            escapes(expression.getRightExpression()); // def tmp = PKB
+            expression.getRightExpression().visit(this);
+            Expression left = expression.getLeftExpression();
+            if (left instanceof TupleExpression tuple) {
+                for (Expression element : tuple.getExpressions()) {
+                    locals.add(((VariableExpression) element).getName());
+                }
+            } else {
+                locals.add(((VariableExpression) left).getName());
+            }
+        }
+
+        @Override
+        public void visitBinaryExpression(BinaryExpression expression) {
+            int operation = expression.getOperation().getType();
+            Expression left = expression.getLeftExpression();
+            if (!Types.ofType(operation, Types.ASSIGNMENT_OPERATOR)) {
+                super.visitBinaryExpression(expression);
+                return;
+            }
+
+            VariableExpression array = indexedVariable(left);
+            if (left instanceof VariableExpression variable) {
+                // X = ... reads the right side first, X += ... also reads X; tmp = PKB makes tmp another name for PKB
+                escapes(expression.getRightExpression());
+                expression.getRightExpression().visit(this);
+                if (operation != Types.ASSIGN) {
+                    read(variable.getName());
+                }
+                write(variable.getName());
+            } else if (array != null) {
+                // X[i] = ... and X[i][j] = ... change the object X refers to, which is an input unless the script created it
+                visitIndexes(left);
+                expression.getRightExpression().visit(this);
+                mutated(array.getName());
+                read(array.getName());
+                write(array.getName());
+            } else {
+                super.visitBinaryExpression(expression);
+            }
+        }
+
+        @Override
+        public void visitPrefixExpression(PrefixExpression expression) {
+            incremented(expression.getExpression());
+        }
+
+        @Override
+        public void visitPostfixExpression(PostfixExpression expression) {
+            incremented(expression.getExpression());
+        }
+
+        // X++ assigns X, X[i]++ changes the object X refers to
+        private void incremented(Expression target) {
+            VariableExpression array = indexedVariable(target);
+            if (target instanceof VariableExpression variable) {
+                read(variable.getName());
+                write(variable.getName());
+            } else if (array != null) {
+                visitIndexes(target);
+                mutated(array.getName());
+                read(array.getName());
+                write(array.getName());
+            } else {
+                target.visit(this);
+            }
+        }
+
+        // a method may change its arguments and its receiver
+        @Override
+        public void visitMethodCallExpression(MethodCallExpression call) {
+            if (!call.isImplicitThis()) {
+                escapes(call.getObjectExpression());
+            }
+            arguments(call.getArguments());
+            super.visitMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitStaticMethodCallExpression(StaticMethodCallExpression call) {
+            arguments(call.getArguments());
+            super.visitStaticMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitConstructorCallExpression(ConstructorCallExpression call) {
+            arguments(call.getArguments());
+            super.visitConstructorCallExpression(call);
+        }
+
+        @Override
+        public void visitReturnStatement(ReturnStatement statement) {
+            escapes(statement.getExpression());
+            super.visitReturnStatement(statement);
+        }
+
+        private void arguments(Expression arguments) {
+            if (arguments instanceof TupleExpression tuple) {
+                for (Expression argument : tuple.getExpressions()) {
+                    escapes(argument);
+                }
+            } else {
+                escapes(arguments);
+            }
+        }
+
+        // the variables whose objects an expression's value may be, they count as mutated
+        private void escapes(Expression expression) {
+            if (expression instanceof VariableExpression variable) {
+                if (!variable.getName().equals("LL")) { // an int, a copy of it can't change it
+                    mutated(variable.getName());
+                }
+            } else if (expression instanceof TernaryExpression ternary) { // and the elvis operator
+                escapes(ternary.getTrueExpression());
+                escapes(ternary.getFalseExpression());
+            } else if (expression instanceof CastExpression cast) {
+                escapes(cast.getExpression());
+            } else if (expression instanceof ListExpression list) {
+                for (Expression element : list.getExpressions()) {
+                    escapes(element);
+                }
+            } else if (expression instanceof MapExpression map) {
+                for (MapEntryExpression entry : map.getMapEntryExpressions()) {
+                    escapes(entry.getValueExpression());
+                }
+            } else if (expression instanceof TupleExpression tuple) { // named arguments
+                for (Expression element : tuple.getExpressions()) {
+                    escapes(element);
+                }
+            }
+        }
+
+        private void mutated(String name) {
+            if (!DYNAMIC_NAMES.contains(name) && !name.equals("this") && !name.equals("super")
+                    && !writes.contains(name) && !locals.contains(name)) {
+                mutates.add(name);
+            }
+        }
+
+        // the index expressions of X[i] or X[i][j], from the outermost
+        private void visitIndexes(Expression element) {
+            while (element instanceof BinaryExpression index && index.getOperation().getType() == Types.LEFT_SQUARE_BRACKET) {
+                index.getRightExpression().visit(this);
+                element = index.getLeftExpression();
+            }
+        }
+
+        // X of X[i] or X[i][j], null for anything else
+        private static VariableExpression indexedVariable(Expression expression) {
+            if (!(expression instanceof BinaryExpression index) || index.getOperation().getType() != Types.LEFT_SQUARE_BRACKET) {
+                return null;
+            }
+            Expression array = expression;
+            while (array instanceof BinaryExpression element && element.getOperation().getType() == Types.LEFT_SQUARE_BRACKET) {
+                array = element.getLeftExpression();
+            }
+            return array instanceof VariableExpression variable ? variable : null;
+        }
+
+        @Override
+        public void visitVariableExpression(VariableExpression expression) {
+            read(expression.getName());
+        }
+
+        @Override
+        public void visitForLoop(ForStatement loop) {
+            Parameter variable = loop.getVariable();
+            if (variable != null && variable != ForStatement.FOR_LOOP_DUMMY) {
+                locals.add(variable.getName());
+            }
+            super.visitForLoop(loop);
+        }
+
+        @Override
+        public void visitClosureExpression(ClosureExpression expression) {
+            if (expression.getParameters() != null) {
+                for (Parameter parameter : expression.getParameters()) {
+                    locals.add(parameter.getName());
+                }
+            }
+            locals.add("it");
+            super.visitClosureExpression(expression);
+        }
+
+        private void read(String name) {
+            if (DYNAMIC_NAMES.contains(name)) {
+                dynamic = true;
+            } else if (!name.equals("this") && !name.equals("super") && !locals.contains(name) && !writes.contains(name)) {
+                reads.add(name);
+            }
+        }
+
+        private void write(String name) {
+            if (!locals.contains(name)) {
+                writes.add(name);
+            }
+        }
+    }
+}
\ No newline at end of file
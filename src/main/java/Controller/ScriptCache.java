@@ -0,0 +1,247 @@
+package Controller;
+
+import Models.BaseModel;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Script;
+import groovy.transform.ThreadInterrupt;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// compiled groovy scripts keyed by a hash of their source, so a script is compiled once and then only bound and run
+public class ScriptCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ScriptCache SHARED = new ScriptCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final ScriptClassLoader classLoader;
+    private final Map<Class<?>, StaticScriptLoader> staticLoaders = new HashMap<>(); // one per model class
+    private final Map<String, Class<? extends Script>> compiled; // access ordered, so the eldest entry is the LRU one
+    private final Map<String, ScriptAnalysis> analyses; // same keys and capacity
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    public ScriptCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.classLoader = new ScriptClassLoader(ScriptCache.class.getClassLoader());
+        this.compiled = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Class<? extends Script>> eldest) {
+                if (size() > ScriptCache.this.capacity) {
+                    // to let the evicted class be collected together with its source
+                    if (eldest.getValue().getClassLoader() instanceof GroovyClassLoader.InnerLoader inner
+                            && inner.getParent() instanceof StaticScriptLoader loader) {
+                        loader.evict(eldest.getValue().getName());
+                    } else {
+                        classLoader.evict(eldest.getValue().getName());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.analyses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ScriptAnalysis> eldest) {
+                return size() > ScriptCache.this.capacity;
+            }
+        };
+    }
+
+    public static ScriptCache shared() {
+        return SHARED;
+    }
+
+    // to compile the script (or take it from the cache) and run it against the binding,
+    // interrupting the thread stops the script at its next loop iteration or method call
+    public Object run(String scriptText, Binding binding) {
+        Script script = InvokerHelper.createScript(compile(scriptText), binding);
+        return script.run();
+    }
+
+    public Class<? extends Script> compile(String scriptText) {
+        String key = hash(scriptText);
+
+        synchronized (compiled) {
+            Class<? extends Script> cached = compiled.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        // compiled outside the lock, two threads missing on the same script at once both compile it
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        GroovyCodeSource source = new GroovyCodeSource(scriptText, "Script_" + key.substring(0, 16) + ".groovy", "/groovy/script");
+        source.setCachable(false);
+        @SuppressWarnings("unchecked")
+        Class<? extends Script> scriptClass = (Class<? extends Script>) classLoader.parseClass(source, false);
+        compileNanos.addAndGet(System.nanoTime() - start);
+
+        synchronized (compiled) {
+            Class<? extends Script> existing = compiled.putIfAbsent(key, scriptClass);
+            return existing != null ? existing : scriptClass;
+        }
+    }
+
+    // the script compiled statically against the model's typed base class (see StaticScriptLoader), which
+    // reads the model's fields itself; the series in the binding are the results of earlier scripts it reads,
+    // what the script assigns is put into the binding
+    public Object runStatic(String scriptText, BaseModel model, Binding binding) {
+        Set<String> inputs = new TreeSet<>();
+        for (Object entry : binding.getVariables().entrySet()) {
+            Map.Entry<?, ?> variable = (Map.Entry<?, ?>) entry;
+            if (variable.getValue() instanceof double[]) {
+                inputs.add(variable.getKey().toString());
+            }
+        }
+        TypedScript script = (TypedScript) InvokerHelper.createScript(compileStatic(scriptText, BindingPlan.of(model), inputs), binding);
+        script.load(BindingPlan.of(model), model);
+        script.loadInputs();
+        Object value = script.run();
+        script.storeOutputs();
+        return value;
+    }
+
+    public Class<? extends TypedScript> compileStatic(String scriptText, BindingPlan plan) {
+        return compileStatic(scriptText, plan, Set.of());
+    }
+
+    // inputs are the script results it reads, double[] fields of the class; fails with the compiler's messages
+    // for a script that doesn't type check
+    public Class<? extends TypedScript> compileStatic(String scriptText, BindingPlan plan, Set<String> inputs) {
+        String hash = hash(scriptText);
+        String inputsHash = inputs.isEmpty() ? "" : "_" + hash(String.join(",", new TreeSet<>(inputs))).substring(0, 8);
+        String name = "Script_" + hash.substring(0, 16) + inputsHash;
+        String key = hash + inputsHash + "@" + plan.getModelClass().getName();
+
+        synchronized (compiled) {
+            Class<? extends Script> cached = compiled.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.asSubclass(TypedScript.class);
+            }
+        }
+        if (analyze(scriptText).dynamic()) {
+            throw new IllegalArgumentException(name
+                    + " uses binding, evaluate, getProperty or setProperty, it can only run dynamically");
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        StaticScriptLoader loader;
+        synchronized (staticLoaders) {
+            loader = staticLoaders.computeIfAbsent(plan.getModelClass(), type -> new StaticScriptLoader(classLoader, plan));
+        }
+        GroovyCodeSource source = new GroovyCodeSource(scriptText, name + ".groovy", "/groovy/script");
+        source.setCachable(false);
+        Class<? extends TypedScript> scriptClass = loader.compile(source, inputs);
+        compileNanos.addAndGet(System.nanoTime() - start);
+
+        synchronized (compiled) {
+            Class<? extends Script> existing = compiled.putIfAbsent(key, scriptClass);
+            return existing != null ? existing.asSubclass(TypedScript.class) : scriptClass;
+        }
+    }
+
+    // the variables the script reads and writes, analysed once per distinct content
+    public ScriptAnalysis analyze(String scriptText) {
+        String key = hash(scriptText);
+        synchronized (analyses) {
+            ScriptAnalysis cached = analyses.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ScriptAnalysis analysis = ScriptAnalysis.of(scriptText);
+        synchronized (analyses) {
+            analyses.putIfAbsent(key, analysis);
+        }
+        return analysis;
+    }
+
+    public static String hash(String scriptText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(scriptText.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public int size() {
+        synchronized (compiled) {
+            return compiled.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (compiled) {
+            compiled.clear();
+        }
+        synchronized (analyses) {
+            analyses.clear();
+        }
+        classLoader.clearCache();
+        synchronized (staticLoaders) {
+            staticLoaders.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCompileTimeNanos() {
+        return compileNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptCache[size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", compileTimeMs=" + getCompileTimeNanos() / 1_000_000 + "]";
+    }
+
+    // one loader shared by every cached script, evicted classes are also dropped from its class cache
+    private static class ScriptClassLoader extends GroovyClassLoader {
+        ScriptClassLoader(ClassLoader parent) {
+            super(parent, interruptible());
+        }
+
+        // loops and method bodies check the interrupt flag, so runaway scripts can be cancelled;
+        // new double[] arrays come from ArrayPool (see PooledArrays)
+        private static CompilerConfiguration interruptible() {
+            CompilerConfiguration config = new CompilerConfiguration();
+            config.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class), new PooledArrays());
+            return config;
+        }
+
+        void evict(String className) {
+            removeClassCacheEntry(className);
+        }
+    }
+}
\ No newline at end of file
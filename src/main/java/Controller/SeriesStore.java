@@ -0,0 +1,136 @@
+package Controller;
+
+import Models.BaseModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// the result rows of a Controller by interned id: the model's @Bind fields first, in the order of the
+// BindingPlan, then script outputs in the order they were first assigned; every row is a double[] column
+// on the year axis starting at START_YEAR, or null for a row that only has a name (fields that are not
+// series, script variables that are not double[]), so nothing is boxed and export needs no type checks
+public final class SeriesStore {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private double[][] columns = new double[16][];
+    private int size;
+    private final int[] fields; // the plan field of every @Bind row
+    private final int modelColumns; // ids below this are @Bind fields
+    private int years;
+
+    SeriesStore(BindingPlan plan) {
+        int[] bound = new int[plan.size()];
+        for (int f = 0; f < plan.size(); f++) {
+            String name = plan.name(f);
+            if (!name.equals("LL")) {
+                bound[intern(name)] = f;
+            }
+        }
+        modelColumns = size;
+        fields = Arrays.copyOf(bound, size);
+    }
+
+    // the id of a row, -1 if there is none
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public double[] column(int id) {
+        return columns[id];
+    }
+
+    // values of the row: the years for @Bind series, the array length for script outputs
+    public int count(int id) {
+        double[] column = columns[id];
+        return column == null ? 0 : id < modelColumns ? years : column.length;
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    public boolean isModelColumn(int id) {
+        return id < modelColumns;
+    }
+
+    // the model's current arrays, a model may allocate its series anew in every run
+    void syncModel(BindingPlan plan, BaseModel model) {
+        years = plan.getYears(model);
+        for (int id = 0; id < modelColumns; id++) {
+            int f = fields[id];
+            columns[id] = plan.isSeries(f) ? plan.getSeries(model, f) : null;
+        }
+    }
+
+    // a script output, null keeps only the name; names of @Bind fields and LL stay the model's
+    void putResult(String name, double[] values) {
+        if (name.equals("LL")) {
+            return;
+        }
+        int id = intern(name);
+        if (id >= modelColumns) {
+            columns[id] = values;
+        }
+    }
+
+    // drops the script outputs, releasing each of their arrays once unless it is one of the model's;
+    // the model columns must be synced
+    void clearResults(Consumer<double[]> release) {
+        for (int id = modelColumns; id < size; id++) {
+            double[] column = columns[id];
+            if (column != null && !isModelArray(column) && !isReleased(column, id)) {
+                release.accept(column);
+            }
+        }
+        for (int id = modelColumns; id < size; id++) {
+            ids.remove(names[id]);
+            names[id] = null;
+            columns[id] = null;
+        }
+        size = modelColumns;
+    }
+
+    private boolean isModelArray(double[] column) {
+        for (int id = 0; id < modelColumns; id++) {
+            if (columns[id] == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a script may put one array under several names
+    private boolean isReleased(double[] column, int id) {
+        for (int before = modelColumns; before < id; before++) {
+            if (columns[before] == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            columns = Arrays.copyOf(columns, size * 2);
+        }
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,301 @@
+package Controller;
+
+import Metrics.Metrics;
+import Models.ModelRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// a long-running HTTP server on the loopback address, so model classes, compiled scripts (ScriptCache) and
+// JIT-compiled code stay warm between runs; every request gets a virtual thread and its own Controller
+//   POST /run?model=Model1&script=file&format=tsv  data in the body, or data=file instead of a body;
+//                                                  script may repeat, format is tsv, csv or binary
+//   GET /models, GET /metrics, GET /health
+// data= and script= name files in the data and script directories, nothing outside them. There is no
+// authentication: requests must name a loopback Host and carry no Origin, so web pages a browser on this
+// machine shows can't call the server (an Origin) or reach it through a name of theirs (a DNS rebinding)
+public class SimulationServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8765;
+    public static final String DATA_DIRECTORY_PROPERTY = "esm.data"; // src/main/data by default
+    public static final String SCRIPT_DIRECTORY_PROPERTY = "esm.scripts"; // src/main/scripts by default
+    public static final String MAX_BODY_PROPERTY = "esm.server.maxBody"; // bytes of data in a request body, 32 MB by default
+
+    private static final int MAX_BODY = Integer.getInteger(MAX_BODY_PROPERTY, 32 << 20);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore running; // runs at the same time, bodies are read with a permit and at most MAX_BODY
+                                     // bytes each, so a burst of requests can't exhaust the heap
+    private final Path dataDirectory;
+    private final Path scriptDirectory;
+
+    // port 0 picks a free port, see getPort
+    public SimulationServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public SimulationServer(int port, int maxRunning) throws IOException {
+        this(port, maxRunning, Path.of(System.getProperty(DATA_DIRECTORY_PROPERTY, "src/main/data")),
+                Path.of(System.getProperty(SCRIPT_DIRECTORY_PROPERTY, "src/main/scripts")));
+    }
+
+    public SimulationServer(int port, int maxRunning, Path dataDirectory, Path scriptDirectory) throws IOException {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("maxRunning must be positive: " + maxRunning);
+        }
+        this.running = new Semaphore(maxRunning);
+        this.dataDirectory = dataDirectory.toAbsolutePath().normalize();
+        this.scriptDirectory = scriptDirectory.toAbsolutePath().normalize();
+        // without TCP_NODELAY the end of a chunked response waits for the client's delayed ACK, ~40 ms;
+        // read once by the JDK server, so it only takes effect if set before the first server starts
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/run", handler("POST", this::run));
+        server.createContext("/models", handler("GET", exchange -> send(exchange, 200, String.join("\n", ModelRegistry.names()) + "\n")));
+        server.createContext("/metrics", handler("GET", this::metrics));
+        server.createContext("/health", handler("GET", exchange -> send(exchange, 200, "ok\n")));
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // runs every registered model on a few periods of made-up data, so the first requests don't pay for
+    // class loading and the JIT; models that fail on such data are left out
+    public SimulationServer warmUp(int rounds) {
+        for (String name : ModelRegistry.names()) {
+            try {
+                BindingPlan plan = BindingPlan.of(ModelRegistry.create(name));
+                StringBuilder data = new StringBuilder("LATA 2015 2016 2017 2018 2019\n");
+                for (int f = 0; f < plan.size(); f++) {
+                    if (plan.isSeries(f)) {
+                        data.append(plan.name(f)).append(" 1.01\n");
+                    }
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(data.toString().getBytes(StandardCharsets.US_ASCII));
+                for (int r = 0; r < rounds; r++) {
+                    Controller controller = new Controller(name);
+                    controller.loadData(bytes.duplicate());
+                    controller.runModel();
+                    controller.writeResultsTo(Channels.newChannel(OutputStream.nullOutputStream()), ResultWriter.Format.TSV);
+                }
+            } catch (Exception e) {
+                // not every model runs on constant data, it just stays cold
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private static HttpHandler handler(String method, Handler handler) {
+        return exchange -> {
+            try (exchange) {
+                if (!isLocal(exchange)) {
+                    send(exchange, 403, "Only local clients without an Origin\n");
+                    return;
+                }
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "Use " + method + "\n");
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (Exception e) {
+                e.printStackTrace(); // the response may be sent already, the client sees the connection close
+            }
+        };
+    }
+
+    // a Host naming the loopback address and no Origin, browsers send one with every cross-site request
+    private static boolean isLocal(HttpExchange exchange) {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            return false;
+        }
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return false;
+        }
+        if (host.startsWith("[")) { // [::1]:8765
+            int end = host.indexOf(']');
+            host = end > 0 ? host.substring(1, end) : host;
+        } else if (host.indexOf(':') >= 0) {
+            host = host.substring(0, host.indexOf(':'));
+        }
+        // names only, never resolved: a rebinding name can point anywhere
+        return host.equalsIgnoreCase("localhost") || host.equals("::1") || host.matches("127(\\.\\d{1,3}){3}");
+    }
+
+    private void run(HttpExchange exchange) throws Exception {
+        Map<String, List<String>> params = query(exchange.getRequestURI());
+        String model = first(params, "model");
+        String dataFile = first(params, "data");
+        ResultWriter.Format format = format(first(params, "format"));
+        if (model == null || format == null) {
+            send(exchange, 400, "Needs model=, data= or data in the body, and format= tsv, csv or binary\n");
+            return;
+        }
+        if (dataFile == null && isTooLarge(exchange.getRequestHeaders().getFirst("Content-Length"))) {
+            send(exchange, 413, "The body is larger than " + MAX_BODY + " bytes\n");
+            return;
+        }
+
+        Path data = dataFile != null ? resolve(dataDirectory, dataFile) : null;
+        List<Path> scripts = new ArrayList<>();
+        for (String script : params.getOrDefault("script", List.of())) {
+            scripts.add(resolve(scriptDirectory, script));
+        }
+        if ((dataFile != null && data == null) || scripts.contains(null)) {
+            send(exchange, 400, "data= and script= name files in the data and script directories\n");
+            return;
+        }
+
+        Controller controller;
+        running.acquire();
+        try {
+            byte[] body = null;
+            if (data == null) {
+                body = exchange.getRequestBody().readNBytes(MAX_BODY + 1); // chunked bodies have no Content-Length
+                if (body.length > MAX_BODY) {
+                    send(exchange, 413, "The body is larger than " + MAX_BODY + " bytes\n");
+                    return;
+                }
+                if (body.length == 0) {
+                    send(exchange, 400, "Needs model=, data= or data in the body, and format= tsv, csv or binary\n");
+                    return;
+                }
+            }
+            controller = new Controller(model);
+            if (data != null) {
+                controller.loadData(data.toString());
+            } else {
+                controller.loadData(ByteBuffer.wrap(body));
+            }
+            controller.runModel();
+            for (Path script : scripts) {
+                controller.executeScriptFile(script.toString());
+            }
+        } catch (Exception e) {
+            // the request's model, data or scripts failed, nothing of the server; the details stay in the log
+            e.printStackTrace();
+            send(exchange, 400, "The model, data or scripts failed\n");
+            return;
+        } finally {
+            running.release();
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", switch (format) {
+            case TSV -> "text/tab-separated-values; charset=utf-8";
+            case CSV -> "text/csv; charset=utf-8";
+            case BINARY -> "application/octet-stream";
+        });
+        exchange.sendResponseHeaders(200, 0); // chunked, rows go out as they are written
+        try (OutputStream out = exchange.getResponseBody()) {
+            controller.writeResultsTo(Channels.newChannel(out), format);
+        }
+    }
+
+    private static boolean isTooLarge(String contentLength) {
+        try {
+            return contentLength != null && Long.parseLong(contentLength.trim()) > MAX_BODY;
+        } catch (NumberFormatException e) {
+            return false; // the JDK server rejects it before
+        }
+    }
+
+    // the file called name in the directory, null if there is none or it is outside, also through a symbolic link
+    private static Path resolve(Path directory, String name) {
+        try {
+            Path file = directory.resolve(name).normalize();
+            if (!file.startsWith(directory) || file.equals(directory)) {
+                return null;
+            }
+            Path real = file.toRealPath();
+            return real.startsWith(directory.toRealPath()) ? real : null;
+        } catch (InvalidPathException | IOException e) {
+            return null;
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            Metrics.writeTo(writer);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ResultWriter.Format format(String name) {
+        if (name == null) {
+            return ResultWriter.Format.TSV;
+        }
+        for (ResultWriter.Format format : ResultWriter.Format.values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, List<String>> query(URI uri) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String first(Map<String, List<String>> params, String key) {
+        List<String> values = params.get(key);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,330 @@
+package Controller;
+
+import Models.BaseModel;
+import Models.ModelDescriptor;
+import Models.ModelRegistry;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// the state of a Controller in one file: model name, @Bind series, script results and the scripts that ran.
+// Series are stored as little-endian double columns aligned to 8 bytes, so open() only maps the file and
+// reads the directory, series are views of the mapping and nothing is copied until toController()
+public final class Snapshot {
+    // layout, little-endian: magic, version, years, start year, model name, entry count, entries of
+    // (byte kind, name, then for series a long offset and an int count or -1 for no values), script count,
+    // scripts, zero padding, then the columns; strings are an int length and UTF-8 bytes. Results other
+    // than series have only their name
+    public static final int MAGIC = 0x534D5345; // "ESMS"
+    public static final int VERSION = 1;
+
+    private static final byte MODEL_SERIES = 0;
+    private static final byte RESULT_SERIES = 1;
+    private static final byte RESULT_OTHER = 7; // kinds 2 to 6 are not used
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // one directory entry, offset and count are for series
+    private record Entry(byte kind, String name, long offset, int count) {}
+
+    private final ByteBuffer data; // the whole snapshot, usually a mapped file
+    private final String modelName;
+    private final int years;
+    private final int startYear;
+    private final List<Entry> entries;
+    private final List<String> scripts;
+
+    private Snapshot(ByteBuffer data, String modelName, int years, int startYear, List<Entry> entries, List<String> scripts) {
+        this.data = data;
+        this.modelName = modelName;
+        this.years = years;
+        this.startYear = startYear;
+        this.entries = entries;
+        this.scripts = scripts;
+    }
+
+    public static void write(Controller controller, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(controller, channel);
+        }
+    }
+
+    // the channel is left open
+    public static void write(Controller controller, WritableByteChannel channel) throws IOException {
+        BaseModel model = controller.model();
+        BindingPlan plan = controller.getBindingPlan();
+        ModelDescriptor descriptor = ModelRegistry.find(model.getClass());
+        String modelName = descriptor != null ? descriptor.name() : model.getClass().getSimpleName();
+
+        // the directory first, series offsets are filled in once its size is known
+        List<double[]> columns = new ArrayList<>();
+        List<Integer> offsetPositions = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(plan.getYears(model)).putInt(Controller.START_YEAR);
+        header = putString(header, modelName);
+
+        SeriesStore store = controller.store();
+        int entryCount = 0;
+        for (int f = 0; f < plan.size(); f++) {
+            entryCount += plan.isSeries(f) ? 1 : 0;
+        }
+        for (int id = 0; id < store.size(); id++) {
+            entryCount += store.isModelColumn(id) ? 0 : 1;
+        }
+        header = ensure(header, 4);
+        header.putInt(entryCount);
+
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f)) {
+                header = putSeries(header, MODEL_SERIES, plan.name(f), plan.getSeries(model, f), columns, offsetPositions);
+            }
+        }
+        for (int id = 0; id < store.size(); id++) {
+            if (store.isModelColumn(id)) {
+                continue;
+            }
+            if (store.column(id) != null) {
+                header = putSeries(header, RESULT_SERIES, store.name(id), store.column(id), columns, offsetPositions);
+            } else {
+                header = putName(header, RESULT_OTHER, store.name(id), 0);
+            }
+        }
+
+        List<String> executed = controller.getExecutedScripts();
+        header = ensure(header, 4);
+        header.putInt(executed.size());
+        for (String script : executed) {
+            header = putString(header, script);
+        }
+
+        long offset = align(header.position());
+        for (int c = 0; c < columns.size(); c++) {
+            header.putLong(offsetPositions.get(c), offset);
+            offset += (long) columns.get(c).length * Double.BYTES;
+        }
+        header = ensure(header, 8);
+        header.put(new byte[(int) (align(header.position()) - header.position())]);
+
+        writeFully(channel, header.flip());
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (double[] column : columns) {
+            for (int from = 0; from < column.length; ) {
+                int n = Math.min(column.length - from, BUFFER_SIZE / Double.BYTES);
+                bytes.clear();
+                bytes.asDoubleBuffer().put(column, from, n);
+                bytes.limit(n * Double.BYTES);
+                writeFully(channel, bytes);
+                from += n;
+            }
+        }
+    }
+
+    public static Snapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than 2 GB: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    // a snapshot from the bytes between position and limit, for snapshots kept inside another file
+    public static Snapshot read(ByteBuffer bytes) throws IOException {
+        ByteBuffer data = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            int years = data.getInt();
+            int startYear = data.getInt();
+            String modelName = getString(data);
+
+            int entryCount = data.getInt();
+            List<Entry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                byte kind = data.get();
+                String name = getString(data);
+                switch (kind) {
+                    case MODEL_SERIES, RESULT_SERIES -> {
+                        long offset = data.getLong();
+                        int count = data.getInt();
+                        if (count >= 0 && (offset % Double.BYTES != 0 || offset + (long) count * Double.BYTES > data.limit())) {
+                            throw new IOException("Series " + name + " lies outside of the snapshot");
+                        }
+                        entries.add(new Entry(kind, name, offset, count));
+                    }
+                    case RESULT_OTHER -> entries.add(new Entry(RESULT_OTHER, name, 0, 0));
+                    default -> throw new IOException("Unknown snapshot entry kind " + kind + " of " + name);
+                }
+            }
+
+            int scriptCount = data.getInt();
+            List<String> scripts = new ArrayList<>(scriptCount);
+            for (int i = 0; i < scriptCount; i++) {
+                scripts.add(getString(data));
+            }
+            return new Snapshot(data, modelName, years, startYear, entries, Collections.unmodifiableList(scripts));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated or damaged snapshot", e);
+        }
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    public int getStartYear() {
+        return startYear;
+    }
+
+    // scripts in the order they ran
+    public List<String> getScripts() {
+        return scripts;
+    }
+
+    // @Bind series first, then script results that are series
+    public List<String> getSeriesNames() {
+        List<String> names = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.kind() == MODEL_SERIES || entry.kind() == RESULT_SERIES) {
+                names.add(entry.name());
+            }
+        }
+        return names;
+    }
+
+    // a read-only view of the mapped column, null for a series without values;
+    // a @Bind series wins over a script result of the same name, as in the results
+    public DoubleBuffer series(String name) {
+        Entry found = null;
+        for (Entry entry : entries) {
+            if (entry.name().equals(name) && (entry.kind() == MODEL_SERIES || entry.kind() == RESULT_SERIES)) {
+                found = entry;
+                if (entry.kind() == MODEL_SERIES) {
+                    break;
+                }
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("No series " + name + " in the snapshot");
+        }
+        return view(found);
+    }
+
+    // a Controller as it was written, each column is copied once into its array
+    public Controller toController() {
+        Controller controller = new Controller(modelName);
+        BaseModel model = controller.model();
+        BindingPlan plan = controller.getBindingPlan();
+        plan.setYears(model, years);
+
+        SeriesStore store = controller.store();
+        for (Entry entry : entries) {
+            if (entry.kind() == MODEL_SERIES) {
+                int f = plan.indexOf(entry.name());
+                if (f < 0 || !plan.isSeries(f)) {
+                    throw new IllegalStateException("Series " + entry.name() + " of the snapshot is not a @Bind series of " + modelName);
+                }
+                plan.setSeries(model, f, toArray(entry));
+            } else {
+                store.putResult(entry.name(), entry.kind() == RESULT_SERIES ? toArray(entry) : null);
+            }
+        }
+        controller.restore(scripts);
+        return controller;
+    }
+
+    private DoubleBuffer view(Entry entry) {
+        if (entry.count() < 0) {
+            return null;
+        }
+        return data.slice((int) entry.offset(), entry.count() * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer().asReadOnlyBuffer();
+    }
+
+    private double[] toArray(Entry entry) {
+        DoubleBuffer view = view(entry);
+        if (view == null) {
+            return null;
+        }
+        double[] values = new double[entry.count()];
+        view.get(values);
+        return values;
+    }
+
+    private static ByteBuffer putSeries(ByteBuffer header, byte kind, String name, double[] values,
+                                        List<double[]> columns, List<Integer> offsetPositions) {
+        header = putName(header, kind, name, 12);
+        if (values != null) {
+            columns.add(values);
+            offsetPositions.add(header.position());
+        }
+        header.putLong(0).putInt(values != null ? values.length : -1);
+        return header;
+    }
+
+    // kind and name, with room for the given number of value bytes after them
+    private static ByteBuffer putName(ByteBuffer header, byte kind, String name, int valueBytes) {
+        header = ensure(header, 1);
+        header.put(kind);
+        header = putString(header, name);
+        return ensure(header, valueBytes);
+    }
+
+    private static ByteBuffer putString(ByteBuffer header, String text) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        header = ensure(header, 4 + encoded.length);
+        return header.putInt(encoded.length).put(encoded);
+    }
+
+    private static String getString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0 || length > data.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] encoded = new byte[length];
+        data.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return bigger.put(buffer.flip());
+    }
+
+    private static long align(long position) {
+        return (position + Double.BYTES - 1) & -Double.BYTES;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
\ No newline at end of file
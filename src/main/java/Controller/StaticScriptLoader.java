@@ -0,0 +1,298 @@
+package Controller;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.transform.CompileStatic;
+import groovy.transform.ThreadInterrupt;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.expr.ArrayExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.control.messages.ExceptionMessage;
+import org.codehaus.groovy.control.messages.Message;
+import org.codehaus.groovy.control.messages.SyntaxErrorMessage;
+import org.codehaus.groovy.syntax.SyntaxException;
+import org.codehaus.groovy.syntax.Types;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// compiles scripts with @CompileStatic against a base class generated for one model class, which declares
+// every @Bind series as a double[] field and LL as an int: "ZDEKS = new double[LL]; for (i = 0; i < LL; i++)
+// ZDEKS[i] = EKS[i] / PKB[i]" then runs as plain bytecode on primitive arrays. Variables a script assigns
+// become fields of its class, typed from their first assignment (a literal, a new array, a cast, a series
+// or arithmetic on those); a script that doesn't type check fails with the compiler's messages. The series
+// earlier scripts left that a script reads are double[] fields of its class too, set from the binding
+// (see TypedScript.loadInputs). Assigning a @Bind series as a whole, as in "PKB = new double[LL]", only
+// replaces the script's own field, the model keeps its array, as a dynamic script only rebinds the variable
+final class StaticScriptLoader extends GroovyClassLoader {
+    private static final ClassNode SERIES_TYPE = ClassHelper.double_TYPE.makeArray();
+
+    private final Class<?> modelClass;
+    private final Map<String, ClassNode> baseTypes = new LinkedHashMap<>(); // fields of the base class
+    private final Map<String, Set<String>> inputs = new ConcurrentHashMap<>(); // by source name, while compiling
+    private final Map<String, Set<String>> untyped = new ConcurrentHashMap<>(); // by source name, while compiling
+
+    StaticScriptLoader(ClassLoader parent, BindingPlan plan) {
+        this(parent, plan, new CompilerConfiguration());
+    }
+
+    // the configuration is the loader's own, customizers added after super apply to every compile
+    private StaticScriptLoader(ClassLoader parent, BindingPlan plan, CompilerConfiguration config) {
+        super(parent, config);
+        this.modelClass = plan.getModelClass();
+        String baseName = "ModelScript_" + modelClass.getName().replaceAll("[^A-Za-z0-9_]", "_");
+
+        config.setScriptBaseClass(baseName);
+        config.addCompilationCustomizers(
+                new OutputFields(),
+                new PooledArrays(),
+                new ASTTransformationCustomizer(ThreadInterrupt.class),
+                new ASTTransformationCustomizer(CompileStatic.class));
+
+        GroovyCodeSource source = new GroovyCodeSource(baseClassSource(baseName, plan), baseName + ".groovy", "/groovy/script");
+        source.setCachable(false);
+        parseClass(source, false); // scripts find it by name in this loader's class cache
+    }
+
+    // inputs are the script results the script reads, the source name has to be distinct for each set of them
+    @SuppressWarnings("unchecked")
+    Class<? extends TypedScript> compile(GroovyCodeSource source, Set<String> inputs) {
+        this.inputs.put(source.getName(), inputs);
+        try {
+            return (Class<? extends TypedScript>) parseClass(source, false);
+        } catch (CompilationFailedException e) {
+            throw diagnostic(source.getName(), e);
+        } finally {
+            this.inputs.remove(source.getName());
+            untyped.remove(source.getName());
+        }
+    }
+
+    void evict(String className) {
+        removeClassCacheEntry(className);
+    }
+
+    // a typed field for every @Bind field and LL, and load setting them from the model through the plan
+    private String baseClassSource(String baseName, BindingPlan plan) {
+        StringBuilder fields = new StringBuilder();
+        StringBuilder load = new StringBuilder();
+        for (int f = 0; f < plan.size(); f++) {
+            String name = plan.name(f);
+            if (name.equals("LL")) {
+                continue;
+            }
+            Class<?> type = plan.type(f);
+            String typeName = type.getCanonicalName() != null && Modifier.isPublic(type.getModifiers()) ? type.getCanonicalName() : "Object";
+            fields.append("    public ").append(typeName).append(' ').append(name).append('\n');
+            if (plan.isSeries(f)) {
+                load.append("        ").append(name).append(" = plan.getSeries(model, ").append(f).append(")\n");
+            } else {
+                load.append("        ").append(name).append(" = (").append(typeName).append(") plan.get(model, ").append(f).append(")\n");
+            }
+            baseTypes.put(name, typeName.equals("Object") ? ClassHelper.OBJECT_TYPE : ClassHelper.make(type));
+        }
+        fields.append("    public int LL\n");
+        load.append("        LL = plan.getYears(model)\n");
+        baseTypes.put("LL", ClassHelper.int_TYPE);
+
+        return "abstract class " + baseName + " extends Controller.TypedScript {\n"
+                + fields
+                + "\n    void load(Controller.BindingPlan plan, Models.BaseModel model) {\n"
+                + load
+                + "    }\n}\n";
+    }
+
+    // the compiler's errors with their positions, and which variables got no type
+    private IllegalArgumentException diagnostic(String sourceName, CompilationFailedException e) {
+        String scriptName = sourceName.endsWith(".groovy") ? sourceName.substring(0, sourceName.length() - 7) : sourceName;
+        StringBuilder text = new StringBuilder("Script ").append(scriptName)
+                .append(" can't be compiled statically for ").append(modelClass.getSimpleName()).append(':');
+        if (e instanceof MultipleCompilationErrorsException multiple) {
+            for (Message message : multiple.getErrorCollector().getErrors()) {
+                text.append("\n  ");
+                if (message instanceof SyntaxErrorMessage syntax) {
+                    SyntaxException cause = syntax.getCause();
+                    text.append("line ").append(cause.getLine()).append(", column ").append(cause.getStartColumn())
+                            .append(": ").append(cause.getOriginalMessage().strip());
+                } else if (message instanceof ExceptionMessage exception) {
+                    text.append(exception.getCause().getMessage());
+                } else {
+                    text.append(message);
+                }
+            }
+        } else {
+            text.append("\n  ").append(e.getMessage());
+        }
+        Set<String> variables = untyped.get(sourceName);
+        if (variables != null) {
+            for (String name : variables) {
+                text.append("\n  ").append(name).append(" gets no type from its first assignment, cast the value there, as in ")
+                        .append(name).append(" = (double) ... or (double[]) ...");
+            }
+        }
+        return new IllegalArgumentException(text.toString(), e);
+    }
+
+    // a public field on the script class for every script result it reads and every variable it assigns that
+    // isn't declared locally or in the base class
+    private final class OutputFields extends CompilationCustomizer {
+        OutputFields() {
+            super(CompilePhase.CONVERSION);
+        }
+
+        @Override
+        public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+            if (!classNode.isScript()) {
+                return;
+            }
+            ModuleNode module = source.getAST();
+            TypeVisitor visitor = new TypeVisitor();
+            for (String name : inputs.getOrDefault(source.getName(), Collections.emptySet())) {
+                if (!baseTypes.containsKey(name)) {
+                    visitor.outputs.put(name, SERIES_TYPE);
+                }
+            }
+            module.getStatementBlock().visit(visitor);
+            for (MethodNode method : module.getMethods()) {
+                method.getCode().visit(visitor);
+            }
+
+            Set<String> missing = new LinkedHashSet<>();
+            for (Map.Entry<String, ClassNode> output : visitor.outputs.entrySet()) {
+                classNode.addField(output.getKey(), Modifier.PUBLIC, output.getValue(), null);
+                if (output.getValue().equals(ClassHelper.OBJECT_TYPE)) {
+                    missing.add(output.getKey());
+                }
+            }
+            untyped.put(source.getName(), missing);
+        }
+    }
+
+    // the type of every assigned variable from its first assignment; an assignment to a field of the base class
+    // becomes this.@name = ..., a script sets an inherited field it doesn't declare through the binding otherwise
+    private final class TypeVisitor extends CodeVisitorSupport {
+        private final Map<String, ClassNode> outputs = new LinkedHashMap<>();
+        private final Set<String> locals = new HashSet<>();
+
+        @Override
+        public void visitDeclarationExpression(DeclarationExpression expression) {
+            expression.getRightExpression().visit(this);
+            Expression left = expression.getLeftExpression();
+            if (left instanceof TupleExpression tuple) {
+                for (Expression element : tuple.getExpressions()) {
+                    locals.add(((VariableExpression) element).getName());
+                }
+            } else {
+                locals.add(((VariableExpression) left).getName());
+            }
+        }
+
+        @Override
+        public void visitBinaryExpression(BinaryExpression expression) {
+            super.visitBinaryExpression(expression);
+            if (expression.getOperation().getType() == Types.ASSIGN
+                    && expression.getLeftExpression() instanceof VariableExpression variable) {
+                String name = variable.getName();
+                if (locals.contains(name)) {
+                    return;
+                }
+                if (baseTypes.containsKey(name)) {
+                    AttributeExpression field = new AttributeExpression(VariableExpression.THIS_EXPRESSION, new ConstantExpression(name));
+                    field.setSourcePosition(variable);
+                    expression.setLeftExpression(field);
+                } else if (!outputs.containsKey(name)) {
+                    outputs.put(name, typeOf(expression.getRightExpression()));
+                }
+            }
+        }
+
+        private ClassNode typeOf(Expression expression) {
+            if (expression instanceof ArrayExpression || expression instanceof CastExpression) {
+                return expression.getType();
+            }
+            if (expression instanceof ConstantExpression constant) {
+                Object value = constant.getValue();
+                if (value instanceof Integer) {
+                    return ClassHelper.int_TYPE;
+                } else if (value instanceof Long) {
+                    return ClassHelper.long_TYPE;
+                } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                    return ClassHelper.double_TYPE;
+                } else if (value instanceof Boolean) {
+                    return ClassHelper.boolean_TYPE;
+                } else if (value instanceof String) {
+                    return ClassHelper.STRING_TYPE;
+                }
+                return ClassHelper.OBJECT_TYPE;
+            }
+            if (expression instanceof VariableExpression variable) {
+                ClassNode type = baseTypes.get(variable.getName());
+                if (type == null) {
+                    type = outputs.get(variable.getName());
+                }
+                return type != null ? type : ClassHelper.OBJECT_TYPE;
+            }
+            if (expression instanceof UnaryMinusExpression minus) {
+                return typeOf(minus.getExpression());
+            }
+            if (expression instanceof BinaryExpression binary) {
+                int operation = binary.getOperation().getType();
+                ClassNode left = typeOf(binary.getLeftExpression());
+                if (operation == Types.LEFT_SQUARE_BRACKET) {
+                    return left.isArray() ? left.getComponentType() : ClassHelper.OBJECT_TYPE;
+                }
+                ClassNode right = typeOf(binary.getRightExpression());
+                if (operation == Types.PLUS || operation == Types.MINUS || operation == Types.MULTIPLY
+                        || operation == Types.DIVIDE || operation == Types.MOD) {
+                    return arithmetic(operation, left, right);
+                }
+                if (Types.ofType(operation, Types.COMPARISON_OPERATOR) || Types.ofType(operation, Types.LOGICAL_OPERATOR)) {
+                    return ClassHelper.boolean_TYPE;
+                }
+            }
+            return ClassHelper.OBJECT_TYPE;
+        }
+
+        // the primitive result of int, long and double operands, int division gives a double as in Groovy
+        private ClassNode arithmetic(int operation, ClassNode left, ClassNode right) {
+            if (!isNumber(left) || !isNumber(right)) {
+                return ClassHelper.OBJECT_TYPE;
+            }
+            if (operation == Types.DIVIDE || left.equals(ClassHelper.double_TYPE) || right.equals(ClassHelper.double_TYPE)) {
+                return ClassHelper.double_TYPE;
+            }
+            return left.equals(ClassHelper.long_TYPE) || right.equals(ClassHelper.long_TYPE) ? ClassHelper.long_TYPE : ClassHelper.int_TYPE;
+        }
+
+        private boolean isNumber(ClassNode type) {
+            return type.equals(ClassHelper.int_TYPE) || type.equals(ClassHelper.long_TYPE) || type.equals(ClassHelper.double_TYPE);
+        }
+    }
+}
\ No newline at end of file
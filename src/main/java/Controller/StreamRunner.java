@@ -0,0 +1,132 @@
+package Controller;
+
+import Metrics.Metrics;
+import Metrics.Phase;
+import Models.BaseModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// runs a model over a data file of any length a chunk of periods at a time: the model's series are arrays of
+// lag + chunk periods, the first lag periods carry the end of the previous chunk, the model runs from there,
+// and the outputs of the chunk go to a sink; memory stays the same however many periods the file has
+public class StreamRunner {
+    public static final int DEFAULT_CHUNK = 4096;
+
+    private final String modelName;
+    private final List<String> outputs = new ArrayList<>();
+    private int chunk = DEFAULT_CHUNK;
+
+    // the model has to say what its series depend on (see BaseModel.dependencies) and how far back it reads (lag)
+    public StreamRunner(String modelName) {
+        this.modelName = modelName;
+    }
+
+    public StreamRunner chunk(int periods) {
+        if (periods < 1) {
+            throw new IllegalArgumentException("chunk must be positive: " + periods);
+        }
+        this.chunk = periods;
+        return this;
+    }
+
+    // by default every @Bind series with values
+    public StreamRunner outputs(String... names) {
+        outputs.addAll(List.of(names));
+        return this;
+    }
+
+    // returns the number of periods, the values are the same as readDataFrom and runModel give
+    public long run(String dataFile, StreamSink sink) throws IOException {
+        BaseModel model = Controller.createModel(modelName);
+        BindingPlan plan = BindingPlan.of(model);
+        Map<String, Set<String>> dependencies = model.dependencies();
+        if (dependencies == null) {
+            throw new IllegalArgumentException("Model " + modelName + " doesn't say what its series depend on, it can't run in chunks");
+        }
+        int lag = Math.max(0, model.lag());
+
+        try (Phase phase = Metrics.start("streamModel", modelName, dataFile);
+             DataChunks data = DataChunks.open(Paths.get(dataFile), plan)) {
+            // series with data and computed series get arrays, inputs without data stay null as after readDataFrom
+            boolean[] windowed = new boolean[plan.size()];
+            List<String> outputNames = new ArrayList<>(outputs);
+            for (int f = 0; f < plan.size(); f++) {
+                windowed[f] = plan.isSeries(f) && (data.hasRow(f) || dependencies.containsKey(plan.name(f)));
+                if (outputs.isEmpty() && windowed[f]) {
+                    outputNames.add(plan.name(f));
+                }
+            }
+            int[] outputFields = new int[outputNames.size()];
+            for (int o = 0; o < outputFields.length; o++) {
+                outputFields[o] = plan.indexOf(outputNames.get(o));
+                if (outputFields[o] < 0 || !plan.isSeries(outputFields[o])) {
+                    throw new IllegalArgumentException("Model has no @Bind series: " + outputNames.get(o));
+                }
+                if (!windowed[outputFields[o]]) {
+                    throw new IllegalArgumentException("Series has no values: " + outputNames.get(o));
+                }
+            }
+
+            long years = data.getYears();
+            double[][] windows = new double[plan.size()][];
+            double[][] outputValues = new double[outputFields.length][];
+            sink.start(Controller.START_YEAR, outputNames);
+
+            long done = 0;
+            while (done < years) {
+                boolean first = done == 0;
+                int carry = first ? 0 : lag;
+                int count = (int) Math.min(first ? (long) lag + chunk : chunk, years - done);
+                int length = carry + count;
+                for (int f = 0; f < windowed.length; f++) {
+                    if (!windowed[f]) {
+                        continue;
+                    }
+                    double[] window = windows[f];
+                    if (window == null || window.length != length) {
+                        // the first chunk and the last, shorter one
+                        double[] resized = new double[length];
+                        if (window != null) {
+                            System.arraycopy(window, window.length - carry, resized, 0, carry);
+                        }
+                        window = resized;
+                    } else if (carry > 0) {
+                        System.arraycopy(window, window.length - carry, window, 0, carry);
+                    }
+                    if (data.hasRow(f)) {
+                        data.read(f, window, carry, count);
+                    }
+                    windows[f] = window;
+                    plan.setSeries(model, f, window);
+                }
+                plan.setYears(model, length);
+
+                if (first) {
+                    model.run();
+                } else {
+                    model.runFrom(carry);
+                }
+
+                // a model may have allocated its computed series anew
+                for (int f = 0; f < windowed.length; f++) {
+                    if (windowed[f]) {
+                        windows[f] = plan.getSeries(model, f);
+                    }
+                }
+                for (int o = 0; o < outputFields.length; o++) {
+                    outputValues[o] = windows[outputFields[o]];
+                }
+                sink.chunk(done, outputValues, carry, count);
+                done += count;
+            }
+            data.checkEnd();
+            sink.finish();
+            return years;
+        }
+    }
+}
\ No newline at end of file
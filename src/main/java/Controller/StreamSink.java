@@ -0,0 +1,19 @@
+package Controller;
+
+import java.io.IOException;
+import java.util.List;
+
+// receives the output series of a StreamRunner chunk by chunk, in period order
+public interface StreamSink {
+    void start(int startYear, List<String> names) throws IOException;
+
+    // periods first..first+count-1, values[series][from + i] is period first + i; the arrays are reused for the next chunk
+    void chunk(long first, double[][] values, int from, int count) throws IOException;
+
+    void finish() throws IOException;
+
+    // one line per period, "LATA" and the series names first; TSV or CSV
+    static StreamSink to(Appendable out, ResultWriter.Format format) {
+        return new TextStreamSink(out, format);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package Controller;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// StreamSink.to: the periods as rows and the series as columns, the transpose of the results layout
+final class TextStreamSink implements StreamSink {
+    private final Appendable out;
+    private final char separator;
+    private final DoubleFormat doubleFormat = new DoubleFormat();
+    private final char[] chars = new char[DoubleFormat.MAX_LENGTH];
+    private int startYear;
+
+    TextStreamSink(Appendable out, ResultWriter.Format format) {
+        if (format == ResultWriter.Format.BINARY) {
+            throw new IllegalArgumentException("Streamed output is TSV or CSV");
+        }
+        this.out = out;
+        this.separator = format == ResultWriter.Format.CSV ? ',' : '\t';
+    }
+
+    @Override
+    public void start(int startYear, List<String> names) throws IOException {
+        this.startYear = startYear;
+        out.append("LATA");
+        for (String name : names) {
+            out.append(separator).append(name);
+        }
+        out.append('\n');
+    }
+
+    @Override
+    public void chunk(long first, double[][] values, int from, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            write(DoubleFormat.writeLong(startYear + first + i, chars, 0));
+            for (double[] series : values) {
+                out.append(separator);
+                write(doubleFormat.format(series[from + i], chars, 0));
+            }
+            out.append('\n');
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (out instanceof Writer writer) {
+            writer.flush();
+        }
+    }
+
+    private void write(int length) throws IOException {
+        if (out instanceof StringBuilder sb) {
+            sb.append(chars, 0, length);
+        } else if (out instanceof Writer writer) {
+            writer.write(chars, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                out.append(chars[i]);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package Controller;
+
+import Models.BaseModel;
+import groovy.lang.Binding;
+import groovy.lang.Script;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+// the superclass of the base class StaticScriptLoader generates for a model: the @Bind fields are typed
+// fields of the script, set by load, and every script result a script reads and every variable it assigns is
+// a typed field of its class, so a statically compiled script reads and writes them without the binding
+public abstract class TypedScript extends Script {
+    // the fields StaticScriptLoader added to a script class for what it reads of earlier scripts and assigns
+    private static final ClassValue<Field[]> VARIABLES = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> outputs = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !field.isSynthetic()
+                        && field.getName().indexOf('$') < 0) {
+                    outputs.add(field);
+                }
+            }
+            return outputs.toArray(new Field[0]);
+        }
+    };
+
+    protected TypedScript() {
+    }
+
+    protected TypedScript(Binding binding) {
+        super(binding);
+    }
+
+    // the model's @Bind fields and LL into the script's fields, generated for every model class
+    public abstract void load(BindingPlan plan, BaseModel model);
+
+    // the script results in the binding into the script's fields
+    void loadInputs() {
+        try {
+            for (Field field : VARIABLES.get(getClass())) {
+                if (getBinding().hasVariable(field.getName())) {
+                    field.set(this, getBinding().getVariable(field.getName()));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot set the variables of " + getClass().getName(), e);
+        }
+    }
+
+    // what the script assigned into the binding, where the controller picks up script variables
+    void storeOutputs() {
+        try {
+            for (Field field : VARIABLES.get(getClass())) {
+                Object value = field.get(this);
+                if (value != null) { // not assigned in this run, as a dynamic script would leave it
+                    getBinding().setVariable(field.getName(), value);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read the variables of " + getClass().getName(), e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package Equations;
+
+import java.util.List;
+
+// one line of an equation file: target[t] = expression, with the expression already translated to code
+record Equation(String target, String code, List<Reference> references, int line) {
+    record Reference(String series, int lag) {}
+
+    // the first period the equation can be evaluated for, earlier values come from the data
+    int start() {
+        int start = 0;
+        for (Reference reference : references) {
+            start = Math.max(start, reference.lag());
+        }
+        return start;
+    }
+}
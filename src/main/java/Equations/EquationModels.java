@@ -0,0 +1,316 @@
+package Equations;
+
+import Annotations.Bind;
+import Models.BaseModel;
+import Models.ModelDescriptor;
+import Models.ModelRegistry;
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// models written as equation files (one "X[t] = ..." per line), compiled at load time into BaseModel classes
+// with statically compiled loops, usable by name like the hand-written models
+public final class EquationModels {
+    public static final String EXTENSION = ".eq";
+    public static final String DIRECTORY_PROPERTY = "esm.models"; // the models directory, src/main/models by default
+    private static final String DEFAULT_DIRECTORY = "src/main/models";
+
+    private static final Map<String, Class<? extends BaseModel>> LOADED = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, byte[]> CLASS_BYTES = new ConcurrentHashMap<>(); // hidden classes have no class file
+
+    private EquationModels() {}
+
+    // the model is named after the file, Model4.eq defines Model4
+    public static Class<? extends BaseModel> load(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        String name = fileName.endsWith(EXTENSION) ? fileName.substring(0, fileName.length() - EXTENSION.length()) : fileName;
+        return define(name, Files.readString(file));
+    }
+
+    // the .eq files of the models directory, each on its own: a file that doesn't compile is reported and skipped;
+    // for applications to call at startup, nothing loads the directory by itself
+    public static List<String> loadModelsDirectory() {
+        Path directory = Path.of(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return names;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(EXTENSION)).sorted()::iterator) {
+                try {
+                    load(file);
+                    String fileName = file.getFileName().toString();
+                    names.add(fileName.substring(0, fileName.length() - EXTENSION.length()));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return names;
+    }
+
+    // only <name>.eq of the esm.models directory, and only when the property is set, for a name the registry
+    // doesn't know; true if that defined the model
+    public static boolean loadFromConfiguredDirectory(String name) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || !name.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            return false;
+        }
+        Path file = Path.of(directory, name + EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            load(file);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public static List<String> loadDirectory(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(EXTENSION)).sorted()::iterator) {
+                load(file);
+                String fileName = file.getFileName().toString();
+                names.add(fileName.substring(0, fileName.length() - EXTENSION.length()));
+            }
+        }
+        return names;
+    }
+
+    public static Class<? extends BaseModel> define(String name, String equations) {
+        if (!name.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException("Model name is not a valid class name: " + name);
+        }
+        Class<? extends BaseModel> modelClass = compile(name, generateSource(name, EquationParser.parse(equations)));
+        LOADED.put(name, modelClass);
+        ModelRegistry.register(describe(name, modelClass)); // usable by name like the compiled models
+        return modelClass;
+    }
+
+    // the registry entry of a compiled equation model, created through a constructor handle
+    private static ModelDescriptor describe(String name, Class<? extends BaseModel> modelClass) {
+        List<String> bindNames = new ArrayList<>();
+        List<Class<?>> bindTypes = new ArrayList<>();
+        for (Field field : modelClass.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Bind.class)) {
+                bindNames.add(field.getName());
+                bindTypes.add(field.getType());
+            }
+        }
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.lookup().findConstructor(modelClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(BaseModel.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Model " + name + " has no public no-arg constructor", e);
+        }
+        return new ModelDescriptor(name, modelClass, () -> {
+            try {
+                return (BaseModel) constructor.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to create model " + name, e);
+            }
+        }, bindNames, bindTypes);
+    }
+
+    // null when no equation model of that name has been loaded
+    public static Class<? extends BaseModel> find(String name) {
+        return LOADED.get(name);
+    }
+
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(LOADED.keySet());
+    }
+
+    // the bytecode an equation model class was defined from, null for other classes
+    public static byte[] classBytes(Class<?> modelClass) {
+        byte[] bytes = CLASS_BYTES.get(modelClass);
+        return bytes != null ? bytes.clone() : null;
+    }
+
+    static String generateSource(String name, List<Equation> equations) {
+        List<Equation> ordered = sortByDependencies(equations);
+
+        // inputs in order of first use, then computed series in equation order, like the hand-written models
+        Set<String> computed = new LinkedHashSet<>();
+        for (Equation equation : equations) {
+            computed.add(equation.target());
+        }
+        Set<String> inputs = new LinkedHashSet<>();
+        for (Equation equation : equations) {
+            for (Equation.Reference reference : equation.references()) {
+                if (!computed.contains(reference.series())) {
+                    inputs.add(reference.series());
+                }
+            }
+        }
+
+        StringBuilder src = new StringBuilder();
+        src.append("package Equations\n\n");
+        src.append("import Annotations.Bind\n");
+        src.append("import groovy.transform.CompileStatic\n");
+        src.append("import groovy.transform.stc.POJO\n\n");
+        src.append("@POJO\n@CompileStatic\n");
+        src.append("class ").append(name).append(" extends Models.BaseModel {\n");
+        src.append("    @Bind private int LL\n");
+        for (String input : inputs) {
+            src.append("    @Bind private double[] ").append(input).append('\n');
+        }
+        for (String output : computed) {
+            src.append("    @Bind private double[] ").append(output).append('\n');
+        }
+
+        src.append("\n    void run() {\n        runFrom(0)\n    }\n");
+
+        // periods before from are kept unless a computed series has to be allocated first
+        src.append("\n    void runFrom(int from) {\n");
+        src.append("        int first = Math.max(from, 0)\n");
+        for (String output : computed) {
+            src.append("        if (").append(output).append(" == null || ").append(output).append(".length != LL) { ")
+                    .append(output).append(" = new double[LL]; first = 0 }\n");
+        }
+        src.append("        for (int t = first; t < LL; t++) {\n");
+        for (Equation equation : ordered) {
+            String assignment = equation.target() + "[t] = " + equation.code();
+            if (equation.start() > 0) {
+                src.append("            if (t >= ").append(equation.start()).append(") ").append(assignment).append('\n');
+            } else {
+                src.append("            ").append(assignment).append('\n');
+            }
+        }
+        src.append("        }\n    }\n");
+
+        int lag = 0;
+        for (Equation equation : equations) {
+            lag = Math.max(lag, equation.start());
+        }
+        src.append("\n    int lag() {\n        ").append(lag).append("\n    }\n");
+
+        src.append("\n    Map<String, Set<String>> dependencies() {\n        DEPENDENCIES\n    }\n");
+        src.append("\n    private static final Map<String, Set<String>> DEPENDENCIES = Map.<String, Set<String>>ofEntries(\n");
+        for (int i = 0; i < equations.size(); i++) {
+            Equation equation = equations.get(i);
+            Set<String> sources = new LinkedHashSet<>();
+            for (Equation.Reference reference : equation.references()) {
+                sources.add(reference.series());
+            }
+            src.append("            Map.entry('").append(equation.target()).append("', Set.<String>of(");
+            int j = 0;
+            for (String source : sources) {
+                src.append(j++ > 0 ? ", '" : "'").append(source).append('\'');
+            }
+            src.append("))").append(i < equations.size() - 1 ? ",\n" : ")\n");
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+
+    // an equation goes after the equations whose value for the same period it reads
+    private static List<Equation> sortByDependencies(List<Equation> equations) {
+        Map<String, Equation> byTarget = new LinkedHashMap<>();
+        for (Equation equation : equations) {
+            if (byTarget.put(equation.target(), equation) != null) {
+                throw new IllegalArgumentException("Line " + equation.line() + ": " + equation.target() + " is defined twice");
+            }
+        }
+
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<Equation>> readers = new HashMap<>();
+        for (Equation equation : equations) {
+            Set<String> sameStep = new LinkedHashSet<>();
+            for (Equation.Reference reference : equation.references()) {
+                if (reference.lag() == 0 && byTarget.containsKey(reference.series())) {
+                    sameStep.add(reference.series());
+                }
+            }
+            pending.put(equation.target(), sameStep.size());
+            for (String series : sameStep) {
+                readers.computeIfAbsent(series, s -> new ArrayList<>()).add(equation);
+            }
+        }
+
+        // Kahn's algorithm, ties keep the order of the file
+        List<Equation> ordered = new ArrayList<>();
+        Deque<Equation> ready = new ArrayDeque<>();
+        for (Equation equation : equations) {
+            if (pending.get(equation.target()) == 0) {
+                ready.add(equation);
+            }
+        }
+        while (!ready.isEmpty()) {
+            Equation next = ready.poll();
+            ordered.add(next);
+            for (Equation reader : readers.getOrDefault(next.target(), List.of())) {
+                if (pending.merge(reader.target(), -1, Integer::sum) == 0) {
+                    ready.add(reader);
+                }
+            }
+        }
+
+        if (ordered.size() < equations.size()) {
+            List<String> cycle = new ArrayList<>();
+            for (Equation equation : equations) {
+                if (pending.get(equation.target()) > 0) {
+                    cycle.add(equation.target());
+                }
+            }
+            throw new IllegalArgumentException("Equations depend on each other within the same period: " + cycle);
+        }
+        return ordered;
+    }
+
+    // compiled with Groovy into bytes and defined as a hidden class next to this one
+    private static Class<? extends BaseModel> compile(String name, String source) {
+        try {
+            CompilationUnit unit = new CompilationUnit(new CompilerConfiguration(), null,
+                    new GroovyClassLoader(EquationModels.class.getClassLoader()));
+            unit.addSource(name + ".groovy", source);
+            unit.compile(Phases.CLASS_GENERATION);
+
+            List<GroovyClass> classes = unit.getClasses();
+            if (classes.size() != 1) {
+                throw new IllegalStateException("Expected one class for model " + name + ", got " + classes.size());
+            }
+            byte[] bytes = classes.get(0).getBytes();
+            Class<? extends BaseModel> modelClass = MethodHandles.lookup()
+                    .defineHiddenClass(bytes, true)
+                    .lookupClass()
+                    .asSubclass(BaseModel.class);
+            CLASS_BYTES.put(modelClass, bytes);
+            return modelClass;
+        } catch (CompilationFailedException e) {
+            throw new IllegalArgumentException("Model " + name + " does not compile: " + e.getMessage(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot define model class " + name, e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package Equations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// parses lines like "KI[t] = twKI[t] * KI[t-1]" into equations; expressions may use + - * / ^, parentheses,
+// numbers, series at t or t-k, and the functions exp, log, sqrt, abs, min, max and pow
+final class EquationParser {
+    private static final Set<String> FUNCTIONS = Set.of("exp", "log", "sqrt", "abs", "min", "max", "pow");
+    private static final Set<String> RESERVED = Set.of("t", "LL");
+
+    private final String text;
+    private final int line;
+    private int pos;
+    private final List<Equation.Reference> references = new ArrayList<>();
+
+    private EquationParser(String text, int line) {
+        this.text = text;
+        this.line = line;
+    }
+
+    // '#' starts a comment, empty lines are skipped
+    static List<Equation> parse(String source) {
+        List<Equation> equations = new ArrayList<>();
+        String[] lines = source.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            String content = lines[i];
+            int comment = content.indexOf('#');
+            if (comment >= 0) {
+                content = content.substring(0, comment);
+            }
+            if (!content.isBlank()) {
+                equations.add(new EquationParser(content, i + 1).equation());
+            }
+        }
+        return equations;
+    }
+
+    private Equation equation() {
+        String target = identifier();
+        if (RESERVED.contains(target)) {
+            throw error("'" + target + "' is reserved");
+        }
+        expect('[');
+        if (!identifier().equals("t")) {
+            throw error("the left side must be " + target + "[t]");
+        }
+        expect(']');
+        expect('=');
+        String code = sum();
+        skipSpaces();
+        if (pos < text.length()) {
+            throw error("unexpected '" + text.charAt(pos) + "'");
+        }
+        return new Equation(target, code, List.copyOf(references), line);
+    }
+
+    private String sum() {
+        StringBuilder code = new StringBuilder(product());
+        while (peek('+') || peek('-')) {
+            char op = text.charAt(pos++);
+            code.append(' ').append(op).append(' ').append(product());
+        }
+        return code.toString();
+    }
+
+    private String product() {
+        StringBuilder code = new StringBuilder(power());
+        while (peek('*') || peek('/')) {
+            char op = text.charAt(pos++);
+            code.append(' ').append(op).append(' ').append(power());
+        }
+        return code.toString();
+    }
+
+    // right associative, binds tighter than unary minus like in mathematics: -x^2 = -(x^2)
+    private String power() {
+        if (peek('-')) {
+            pos++;
+            return "(-" + power() + ")";
+        }
+        String base = primary();
+        if (peek('^')) {
+            pos++;
+            return "Math.pow(" + base + ", " + power() + ")";
+        }
+        return base;
+    }
+
+    private String primary() {
+        skipSpaces();
+        if (pos >= text.length()) {
+            throw error("expression ends too early");
+        }
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            String inner = sum();
+            expect(')');
+            return "(" + inner + ")";
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            String name = identifier();
+            if (peek('(')) {
+                return function(name);
+            }
+            return series(name);
+        }
+        throw error("unexpected '" + c + "'");
+    }
+
+    private String function(String name) {
+        if (!FUNCTIONS.contains(name)) {
+            throw error("unknown function " + name);
+        }
+        expect('(');
+        List<String> arguments = new ArrayList<>();
+        arguments.add(sum());
+        while (peek(',')) {
+            pos++;
+            arguments.add(sum());
+        }
+        expect(')');
+        int expected = name.equals("min") || name.equals("max") || name.equals("pow") ? 2 : 1;
+        if (arguments.size() != expected) {
+            throw error(name + " takes " + expected + " argument(s)");
+        }
+        return "Math." + name + "(" + String.join(", ", arguments) + ")";
+    }
+
+    private String series(String name) {
+        if (RESERVED.contains(name)) {
+            throw error("'" + name + "' can only be used as the index t");
+        }
+        if (!peek('[')) {
+            throw error("series " + name + " needs an index, like " + name + "[t]");
+        }
+        pos++;
+        if (!identifier().equals("t")) {
+            throw error("the index of " + name + " must be t or t-k");
+        }
+        int lag = 0;
+        if (peek('-')) {
+            pos++;
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("the lag of " + name + " must be a whole number");
+            }
+            lag = Integer.parseInt(text.substring(start, pos));
+        } else if (peek('+')) {
+            throw error("values from later periods (" + name + "[t+k]) are not supported");
+        }
+        expect(']');
+        references.add(new Equation.Reference(name, lag));
+        return lag == 0 ? name + "[t]" : name + "[t - " + lag + "]";
+    }
+
+    private String number() {
+        int start = pos;
+        while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+            pos++;
+        }
+        if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < text.length() && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+                pos++;
+            }
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        try {
+            // always a double literal, so that 1/2 is not integer or BigDecimal arithmetic
+            return Double.parseDouble(text.substring(start, pos)) + "d";
+        } catch (NumberFormatException e) {
+            throw error("bad number " + text.substring(start, pos));
+        }
+    }
+
+    private String identifier() {
+        skipSpaces();
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+        }
+        if (start == pos || Character.isDigit(text.charAt(start))) {
+            throw error("a name was expected");
+        }
+        return text.substring(start, pos);
+    }
+
+    private boolean peek(char c) {
+        skipSpaces();
+        return pos < text.length() && text.charAt(pos) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw error("'" + c + "' was expected");
+        }
+        pos++;
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,38 @@
+package Metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// counts of values by power of two, bucket b holds values up to 2^b (bucket 0 also holds 0 and below)
+public final class Histogram {
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(bucket(value));
+    }
+
+    public static int bucket(long value) {
+        return value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+    }
+
+    public long count(int bucket) {
+        return counts.get(bucket);
+    }
+
+    // "<=1024:3 <=2048:1", only buckets with values
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < BUCKETS; b++) {
+            long count = counts.get(b);
+            if (count > 0) {
+                if (!sb.isEmpty()) {
+                    sb.append(' ');
+                }
+                sb.append("<=").append(b == 63 ? Long.MAX_VALUE : 1L << b).append(':').append(count);
+            }
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package Metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// in-process timers, counters and allocation histograms of the pipeline phases, by phase and model, so a
+// long-running server keeps a bounded number of them. Off by default: -Desm.metrics=true or setEnabled turns
+// it on, -Desm.metrics.file=... also dumps it to that file when the JVM exits. Phases are JFR events too
+// (see PhaseEvent), with or without it, and those also carry the script or data file name
+public final class Metrics {
+    // identifies a timer or counter
+    public record Key(String phase, String model) {
+        public Key {
+            model = model != null ? model : "";
+        }
+    }
+
+    private static final Comparator<Key> ORDER = Comparator.comparing(Key::phase).thenComparing(Key::model);
+
+    private static final Map<Key, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<Key, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = Boolean.getBoolean("esm.metrics");
+
+    static {
+        String file = System.getProperty("esm.metrics.file");
+        if (file != null) {
+            enabled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dumpTo(Paths.get(file));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "metrics-dump"));
+        }
+    }
+
+    private Metrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // true if a phase started now would be measured or recorded
+    public static boolean isActive() {
+        return enabled || new PhaseEvent().isEnabled(); // the event doesn't escape, the JIT drops it
+    }
+
+    // to be closed when the phase ends, when nothing measures or records phases this is a shared no-op;
+    // name, a script or data file, goes only to the JFR event
+    public static Phase start(String phase, String model, String name) {
+        boolean recorded = new PhaseEvent().isEnabled();
+        if (!enabled && !recorded) {
+            return Phase.NONE;
+        }
+        return new Phase(phase, model, name, enabled, recorded);
+    }
+
+    public static void count(String counter, String model, long delta) {
+        if (enabled) {
+            COUNTERS.computeIfAbsent(new Key(counter, model), key -> new LongAdder()).add(delta);
+        }
+    }
+
+    public static Timer timer(String phase, String model) {
+        return TIMERS.computeIfAbsent(new Key(phase, model), key -> new Timer());
+    }
+
+    public static long counter(String counter, String model) {
+        LongAdder adder = COUNTERS.get(new Key(counter, model));
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public static void reset() {
+        TIMERS.clear();
+        COUNTERS.clear();
+    }
+
+    // tab separated, one section for timers and one for counters, sorted by key
+    public static void writeTo(Appendable out) throws IOException {
+        out.append("PHASE\tMODEL\tCOUNT\tTOTAL_MS\tMEAN_MS\tMIN_MS\tMAX_MS\tALLOCATED_BYTES\tALLOCATIONS\n");
+        for (Key key : sorted(TIMERS)) {
+            Timer timer = TIMERS.get(key);
+            long count = timer.getCount();
+            out.append(key.phase()).append('\t').append(key.model())
+                    .append('\t').append(Long.toString(count))
+                    .append('\t').append(millis(timer.getTotalNanos()))
+                    .append('\t').append(millis(count > 0 ? timer.getTotalNanos() / count : 0))
+                    .append('\t').append(millis(timer.getMinNanos()))
+                    .append('\t').append(millis(timer.getMaxNanos()))
+                    .append('\t').append(Long.toString(timer.getAllocatedBytes()))
+                    .append('\t').append(timer.getAllocations().toString()).append('\n');
+        }
+        out.append('\n');
+        out.append("COUNTER\tMODEL\tVALUE\n");
+        for (Key key : sorted(COUNTERS)) {
+            out.append(key.phase()).append('\t').append(key.model())
+                    .append('\t').append(Long.toString(COUNTERS.get(key).sum())).append('\n');
+        }
+    }
+
+    public static void dumpTo(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeTo(writer);
+        }
+    }
+
+    // bytes allocated so far by the current thread, -1 where the JVM doesn't count them
+    static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = Allocations.THREADS;
+        return threads != null ? threads.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static List<Key> sorted(Map<Key, ?> map) {
+        List<Key> keys = new ArrayList<>(map.keySet());
+        keys.sort(ORDER);
+        return keys;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(java.util.Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    // loaded on first use, the management beans take a while to start
+    private static final class Allocations {
+        static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package Metrics;
+
+// a running phase from Metrics.start, closing it records the time and bytes it took
+public final class Phase implements AutoCloseable {
+    static final Phase NONE = new Phase(null, null, null, false, false); // neither metrics nor JFR are on
+
+    private final String phase;
+    private final String model;
+    private final String name;
+    private final boolean measured;
+    private final PhaseEvent event;
+    private final long startNanos;
+    private final long startAllocated;
+
+    Phase(String phase, String model, String name, boolean measured, boolean recorded) {
+        this.phase = phase;
+        this.model = model;
+        this.name = name;
+        this.measured = measured;
+        this.startAllocated = measured || recorded ? Metrics.allocatedBytes() : -1;
+        this.startNanos = measured ? System.nanoTime() : 0;
+        if (recorded) {
+            event = new PhaseEvent();
+            event.begin();
+        } else {
+            event = null;
+        }
+    }
+
+    public boolean isActive() {
+        return this != NONE;
+    }
+
+    @Override
+    public void close() {
+        if (this == NONE) {
+            return;
+        }
+        long nanos = measured ? System.nanoTime() - startNanos : 0;
+        long allocated = startAllocated >= 0 ? Metrics.allocatedBytes() - startAllocated : -1;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase;
+                event.model = model;
+                event.name = name != null ? name : "";
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+        if (measured) {
+            Metrics.timer(phase, model).record(nanos, allocated);
+        }
+    }
+}
\ No newline at end of file
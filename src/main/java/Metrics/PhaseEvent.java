@@ -0,0 +1,32 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// one pipeline phase in a flight recording, enabled with -XX:StartFlightRecording or a JFR settings file
+@Name("ESM.Phase")
+@Label("Pipeline Phase")
+@Category("ESM")
+@Description("Loading a model, reading data, running a model or script, writing results")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Model")
+    String model;
+
+    @Label("Name")
+    @Description("Script or data file, empty if the phase has none")
+    String name;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread during the phase, -1 if not measured")
+    @DataAmount
+    long allocated;
+}
\ No newline at end of file
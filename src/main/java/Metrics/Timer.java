@@ -0,0 +1,50 @@
+package Metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// durations and allocated bytes of one phase, safe to update from many threads
+public final class Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final Histogram allocations = new Histogram(); // bytes allocated per call
+
+    // allocated is -1 where the JVM doesn't measure allocations
+    public void record(long nanos, long allocated) {
+        count.increment();
+        totalNanos.add(nanos);
+        minNanos.accumulate(nanos);
+        maxNanos.accumulate(nanos);
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+            allocations.record(allocated);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMinNanos() {
+        return getCount() > 0 ? minNanos.get() : 0;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public Histogram getAllocations() {
+        return allocations;
+    }
+}
\ No newline at end of file
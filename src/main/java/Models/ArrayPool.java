@@ -0,0 +1,89 @@
+package Models;
+
+import java.util.Arrays;
+
+// double[] arrays to use again instead of allocating, one pool per platform thread so taking and giving
+// need no locks. Pooling is off unless the caller turns it on for the thread (Controller does while it runs
+// with poolArrays, see Controller.reset): otherwise take and zeroed allocate and reuse returns a new array,
+// so arrays handed out by a normal run are never written by a later one. Virtual threads don't pool
+public final class ArrayPool {
+    private static final int SLOTS = 64;
+    private static final long MAX_DOUBLES = 1 << 24; // 128 MB per thread at most
+    private static final ThreadLocal<ArrayPool> POOLS = ThreadLocal.withInitial(ArrayPool::new);
+
+    private final double[][] arrays = new double[SLOTS][];
+    private int count;
+    private long doubles;
+    private boolean enabled;
+
+    private ArrayPool() {}
+
+    // pooling on or off for this thread, returns the previous state to put back
+    public static boolean enable(boolean enabled) {
+        if (Thread.currentThread().isVirtual()) {
+            return false;
+        }
+        ArrayPool pool = POOLS.get();
+        boolean previous = pool.enabled;
+        pool.enabled = enabled;
+        return previous;
+    }
+
+    // an array of the length with the values it had before, for callers that set every element
+    public static double[] take(int length) {
+        double[] array = remove(length);
+        return array != null ? array : new double[length];
+    }
+
+    // an array of the length with every element 0, as new double[length] gives
+    public static double[] zeroed(int length) {
+        double[] array = remove(length);
+        if (array == null) {
+            return new double[length];
+        }
+        Arrays.fill(array, 0);
+        return array;
+    }
+
+    // current itself when pooling is on and it has the length, for a model's output that every run sets again
+    public static double[] reuse(double[] current, int length) {
+        if (current != null && current.length == length && isEnabled()) {
+            return current;
+        }
+        return take(length);
+    }
+
+    // nothing may use the array afterwards, the next take of its length on this thread returns it
+    public static void give(double[] array) {
+        if (array == null || Thread.currentThread().isVirtual()) {
+            return;
+        }
+        ArrayPool pool = POOLS.get();
+        if (pool.count < SLOTS && pool.doubles + array.length <= MAX_DOUBLES) {
+            pool.arrays[pool.count++] = array;
+            pool.doubles += array.length;
+        }
+    }
+
+    private static boolean isEnabled() {
+        return !Thread.currentThread().isVirtual() && POOLS.get().enabled;
+    }
+
+    // the most recently given array of the length, null when pooling is off
+    private static double[] remove(int length) {
+        if (!isEnabled()) {
+            return null;
+        }
+        ArrayPool pool = POOLS.get();
+        for (int i = pool.count - 1; i >= 0; i--) {
+            double[] array = pool.arrays[i];
+            if (array.length == length) {
+                pool.arrays[i] = pool.arrays[--pool.count];
+                pool.arrays[pool.count] = null;
+                pool.doubles -= length;
+                return array;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
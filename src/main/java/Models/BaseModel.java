@@ -1,5 +1,80 @@
 package Models;
 
+import java.util.Map;
+import java.util.Set;
+
 public abstract class BaseModel {
-    public abstract void run(); //  method for all models
+    private final Recurrences.LevelSum equations; // null unless the model is levels and their sum
+
+    protected BaseModel() {
+        this(null);
+    }
+
+    // a model made of levels and their sum (see Recurrences.levelSum) only declares its series, the methods
+    // below run, restart, scan and describe the equations
+    protected BaseModel(Recurrences.LevelSum equations) {
+        this.equations = equations;
+    }
+
+    //  method for all models
+    public void run() {
+        if (equations == null) {
+            throw new UnsupportedOperationException(getClass().getName() + " has no run()");
+        }
+        equations.run(this);
+    }
+
+    // the same computation for long horizons split across cores, results may differ from run()
+    // by the rounding of a different evaluation order (see Recurrences.relativeTolerance)
+    public void runParallel() {
+        if (equations != null) {
+            equations.runParallel(this);
+        } else {
+            run();
+        }
+    }
+
+    // to recompute periods from..LL-1 when earlier periods are still up to date,
+    // models that can't start in the middle compute everything
+    public void runFrom(int from) {
+        if (equations != null) {
+            equations.runFrom(this, from, equations.dependencies().keySet());
+        } else {
+            run();
+        }
+    }
+
+    // runFrom when only the given computed series are affected (see dependencies), the others keep their
+    // values; models that can't tell them apart recompute everything from from
+    public void runFrom(int from, Set<String> series) {
+        if (equations != null) {
+            equations.runFrom(this, from, series);
+        } else {
+            runFrom(from);
+        }
+    }
+
+    // how many earlier periods a computed period reads, a run over a window of periods needs
+    // that many periods before the window's first (see Controller.StreamRunner)
+    public int lag() {
+        return 1;
+    }
+
+    // entities fromEntity..toEntity-1 of a panel at once, on the panel's arrays (see Panel), which already
+    // hold every series dependencies() names; blocks run at the same time on one model, so a kernel keeps
+    // nothing in fields. False when the model has no such kernel, then the entities are run one at a time
+    // through run() (see Controller.PanelRunner)
+    public boolean runPanel(Panel panel, int fromEntity, int toEntity) {
+        if (equations == null) {
+            return false;
+        }
+        equations.runPanel(panel, fromEntity, toEntity);
+        return true;
+    }
+
+    // each series the model computes and the series (with their earlier periods) it is computed from,
+    // null when the model doesn't say, then every series is taken to depend on every other
+    public Map<String, Set<String>> dependencies() {
+        return equations != null ? equations.dependencies() : null;
+    }
 }
\ No newline at end of file
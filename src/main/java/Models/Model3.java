@@ -2,6 +2,8 @@ package Models;
 
 import Annotations.Bind;
 
+import java.lang.invoke.MethodHandles;
+
 // class the same as Model1 just to try different models
 
 public class Model3 extends BaseModel {
@@ -11,18 +13,8 @@ public class Model3 extends BaseModel {
 
     private double temp;
 
-    public Model3() {}
-
-    public void run() {
-        PKB = new double[LL];
-        PKB[0] = KI[0] + KS[0] + INW[0] + EKS[0] - IMP[0];
-        for (int t = 1; t < LL; t++) {
-            KI[t] = twKI[t] * KI[t-1];
-            KS[t] = twKS[t] * KS[t-1];
-            INW[t] = twINW[t] * INW[t-1];
-            EKS[t] = twEKS[t] * EKS[t-1];
-            IMP[t] = twIMP[t] * IMP[t-1];
-            PKB[t] = KI[t] + KS[t] + INW[t] + EKS[t] - IMP[t];
-        }
+    public Model3() {
+        // every level X[t] = twX[t] * X[t-1], PKB[t] = KI[t] + KS[t] + INW[t] + EKS[t] - IMP[t]
+        super(Recurrences.levelSum(MethodHandles.lookup(), "PKB", "KI", "KS", "INW", "EKS", "-IMP"));
     }
 }
\ No newline at end of file
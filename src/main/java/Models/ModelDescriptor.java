@@ -0,0 +1,20 @@
+package Models;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// a model known by name: its class, a direct constructor and its @Bind fields in declaration order
+public record ModelDescriptor(String name, Class<? extends BaseModel> modelClass, Supplier<? extends BaseModel> constructor,
+                              List<String> bindNames, List<Class<?>> bindTypes) {
+    public ModelDescriptor {
+        bindNames = List.copyOf(bindNames);
+        bindTypes = List.copyOf(bindTypes);
+        if (bindNames.size() != bindTypes.size()) {
+            throw new IllegalArgumentException("Every @Bind field of " + name + " needs a type");
+        }
+    }
+
+    public BaseModel create() {
+        return constructor.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package Models;
+
+import java.util.List;
+
+// a source of models found through ServiceLoader, the build generates one for the models it compiles
+// (see Annotations.ModelRegistryProcessor)
+public interface ModelProvider {
+    List<ModelDescriptor> models();
+}
\ No newline at end of file
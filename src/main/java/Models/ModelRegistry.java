@@ -0,0 +1,93 @@
+package Models;
+
+import Equations.EquationModels;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// every model by name: the ones compiled into the build, found through ServiceLoader on first use, and the
+// ones registered while running, which take precedence. Equation models register when they are loaded
+// (the applications load the models directory at startup, see EquationModels.loadModelsDirectory); a name
+// found nowhere else is looked up as an .eq file of the esm.models directory if that is set
+public final class ModelRegistry {
+    private static final Map<String, ModelDescriptor> REGISTERED = new ConcurrentHashMap<>();
+
+    private ModelRegistry() {}
+
+    // loaded once, only when a model is first looked up
+    private static final class Compiled {
+        static final Map<String, ModelDescriptor> BY_NAME;
+        static final Map<Class<?>, ModelDescriptor> BY_CLASS;
+
+        static {
+            Map<String, ModelDescriptor> byName = new HashMap<>();
+            Map<Class<?>, ModelDescriptor> byClass = new HashMap<>();
+            for (ModelProvider provider : ServiceLoader.load(ModelProvider.class, ModelRegistry.class.getClassLoader())) {
+                for (ModelDescriptor descriptor : provider.models()) {
+                    byName.putIfAbsent(descriptor.name(), descriptor);
+                    byClass.putIfAbsent(descriptor.modelClass(), descriptor);
+                }
+            }
+            BY_NAME = Collections.unmodifiableMap(byName);
+            BY_CLASS = Collections.unmodifiableMap(byClass);
+        }
+    }
+
+    public static void register(ModelDescriptor descriptor) {
+        REGISTERED.put(descriptor.name(), descriptor);
+    }
+
+    // null when no model of that name is known
+    public static ModelDescriptor find(String name) {
+        ModelDescriptor descriptor = REGISTERED.get(name);
+        if (descriptor == null) {
+            descriptor = Compiled.BY_NAME.get(name);
+        }
+        if (descriptor == null && EquationModels.loadFromConfiguredDirectory(name)) {
+            descriptor = REGISTERED.get(name);
+        }
+        return descriptor;
+    }
+
+    public static ModelDescriptor find(Class<?> modelClass) {
+        for (ModelDescriptor descriptor : REGISTERED.values()) {
+            if (descriptor.modelClass() == modelClass) {
+                return descriptor;
+            }
+        }
+        return Compiled.BY_CLASS.get(modelClass);
+    }
+
+    // sorted alphabetically
+    public static List<String> names() {
+        TreeSet<String> names = new TreeSet<>(Compiled.BY_NAME.keySet());
+        names.addAll(REGISTERED.keySet());
+        return List.copyOf(names);
+    }
+
+    public static BaseModel create(String name) {
+        ModelDescriptor descriptor = find(name);
+        if (descriptor == null) {
+            throw new IllegalArgumentException("Unknown model: " + name);
+        }
+        return descriptor.create();
+    }
+
+    // a new instance of the class, by its constructor reference if the model is registered
+    public static BaseModel create(Class<? extends BaseModel> modelClass) {
+        ModelDescriptor descriptor = find(modelClass);
+        if (descriptor != null) {
+            return descriptor.create();
+        }
+        try {
+            return modelClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Failed to create model: " + modelClass.getName(), e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// the series of many entities (regions, sectors) of one model in one place: every series is a single
+// entities x years array in year-major order, the value of entity e in period t at t * entities + e,
+// so a model's loop over entities within a period reads and writes consecutive doubles
+public final class Panel {
+    private final List<String> entities;
+    private final int years;
+    private final Map<String, double[]> series = new LinkedHashMap<>();
+
+    public Panel(List<String> entities, int years) {
+        if (entities.isEmpty()) {
+            throw new IllegalArgumentException("Panel has no entities");
+        }
+        if ((long) entities.size() * years > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Panel of " + entities.size() + " entities and " + years + " years is too large");
+        }
+        this.entities = Collections.unmodifiableList(new ArrayList<>(entities));
+        this.years = years;
+    }
+
+    public int getEntities() {
+        return entities.size();
+    }
+
+    public String entity(int e) {
+        return entities.get(e);
+    }
+
+    public List<String> getEntityNames() {
+        return entities;
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    // the year-major array of a series, null if the panel has none
+    public double[] series(String name) {
+        return series.get(name);
+    }
+
+    public boolean has(String name) {
+        return series.containsKey(name);
+    }
+
+    // the series' array, zeros if it didn't exist; not for use while a model runs over the panel
+    public double[] create(String name) {
+        return series.computeIfAbsent(name, n -> new double[entities.size() * years]);
+    }
+
+    public void put(String name, double[] values) {
+        if (values.length != entities.size() * years) {
+            throw new IllegalArgumentException("Series " + name + " has " + values.length + " values, the panel "
+                    + entities.size() * years);
+        }
+        series.put(name, values);
+    }
+
+    public List<String> getSeriesNames() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    public double get(String name, int entity, int period) {
+        return series.get(name)[period * entities.size() + entity];
+    }
+
+    // the periods of one entity into values
+    public void copyEntity(String name, int entity, double[] values) {
+        double[] all = series.get(name);
+        int n = entities.size();
+        for (int t = 0; t < years; t++) {
+            values[t] = all[t * n + entity];
+        }
+    }
+
+    // values as the periods of one entity
+    public void setEntity(String name, int entity, double[] values) {
+        double[] all = series.get(name);
+        int n = entities.size();
+        for (int t = 0; t < years; t++) {
+            all[t * n + entity] = values[t];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+package Models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.IntStream;
+
+// building blocks for running long horizons in parallel: X[t] = tw[t] * X[t-1] is a cumulative product,
+// so it can be computed as a parallel prefix scan instead of a loop over t
+public final class Recurrences {
+    // below this many years the sequential loop is faster than splitting the work
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int BLOCK = 1 << 14; // years per task in elementwise steps
+
+    private static final DoubleBinaryOperator MULTIPLY = (a, b) -> a * b;
+    private static final Map<Class<?>, LevelSum> LEVEL_SUMS = new ConcurrentHashMap<>();
+
+    private Recurrences() {}
+
+    // a scan does about twice the work of the loop, it only pays off with more than one core
+    public static boolean worthParallel(int years) {
+        return years >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    // a scan multiplies the factors in a different order than the loop, each product of n factors may differ
+    // from the sequential one by this relative amount (two rounding errors per factor, conservatively);
+    // a sum of such series differs by at most this much times the sum of the absolute values of its terms
+    public static double relativeTolerance(int years) {
+        return 2.0 * years * Math.ulp(1.0);
+    }
+
+    // level[t] = growth[t] * level[t-1] for t in 1..years-1, level[0] is the starting value
+    public static void cumulativeProduct(double[] growth, double[] level, int years) {
+        if (years > 1) {
+            System.arraycopy(growth, 1, level, 1, years - 1);
+            Arrays.parallelPrefix(level, 0, years, MULTIPLY);
+        }
+    }
+
+    // independent series at the same time, returns when all are done
+    public static void inParallel(Runnable... steps) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            tasks[i] = ForkJoinTask.adapt(steps[i]);
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    public interface Range {
+        void apply(int from, int to);
+    }
+
+    // an elementwise step over [0, years) in parallel blocks, each block a plain loop the JIT can vectorize
+    public static void forEachBlock(int years, Range range) {
+        int blocks = (years + BLOCK - 1) / BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(b -> range.apply(b * BLOCK, Math.min(years, (b + 1) * BLOCK)));
+    }
+
+    // the equations of a model whose computed series are levels, each X[t] = twX[t] * X[t-1], and one series
+    // summing them, a term named "-X" subtracted: levelSum(lookup, "PKB", "KI", "-IMP") is PKB[t] = KI[t] - IMP[t].
+    // The model passes MethodHandles.lookup() for its @Bind fields LL, the levels, their tw series and the sum,
+    // and BaseModel runs, restarts and scans them (see BaseModel(LevelSum)); one per model class
+    public static LevelSum levelSum(MethodHandles.Lookup lookup, String sum, String... terms) {
+        return LEVEL_SUMS.computeIfAbsent(lookup.lookupClass(), type -> new LevelSum(lookup, sum, terms));
+    }
+
+    public static final class LevelSum {
+        private final VarHandle years;
+        private final VarHandle sum;
+        private final VarHandle[] levels;
+        private final VarHandle[] growths;
+        private final String sumName;
+        private final String[] levelNames;
+        private final String[] growthNames;
+        private final boolean[] subtracted;
+        private final Map<String, Set<String>> dependencies;
+
+        private LevelSum(MethodHandles.Lookup lookup, String sum, String... terms) {
+            Class<?> type = lookup.lookupClass();
+            this.sumName = sum;
+            this.levelNames = new String[terms.length];
+            this.growthNames = new String[terms.length];
+            this.subtracted = new boolean[terms.length];
+            this.levels = new VarHandle[terms.length];
+            this.growths = new VarHandle[terms.length];
+            Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+            try {
+                this.years = lookup.findVarHandle(type, "LL", int.class);
+                this.sum = lookup.findVarHandle(type, sum, double[].class);
+                for (int i = 0; i < terms.length; i++) {
+                    subtracted[i] = terms[i].startsWith("-");
+                    levelNames[i] = subtracted[i] ? terms[i].substring(1) : terms[i];
+                    growthNames[i] = "tw" + levelNames[i];
+                    levels[i] = lookup.findVarHandle(type, levelNames[i], double[].class);
+                    growths[i] = lookup.findVarHandle(type, growthNames[i], double[].class);
+                    dependencies.put(levelNames[i], Set.of(growthNames[i], levelNames[i]));
+                }
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalArgumentException(type.getName() + " has no series for " + sum + " = " + String.join(" + ", terms), e);
+            }
+            dependencies.put(sum, Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(levelNames))));
+            this.dependencies = Collections.unmodifiableMap(dependencies);
+        }
+
+        public Map<String, Set<String>> dependencies() {
+            return dependencies;
+        }
+
+        void run(Object model) {
+            int years = (int) this.years.get(model);
+            double[] sum = sum(model, years);
+            for (int i = 0; i < levels.length; i++) {
+                grow((double[]) growths[i].get(model), (double[]) levels[i].get(model), 1, years, 1);
+            }
+            add(model, sum, 0, years);
+        }
+
+        // periods before from keep their values, so an edit from year t only recomputes t onwards; only the
+        // given series, the others are up to date
+        void runFrom(BaseModel model, int from, Set<String> series) {
+            int years = (int) this.years.get(model);
+            double[] sum = (double[]) this.sum.get(model);
+            if (from <= 0 || sum == null || sum.length != years) {
+                model.run();
+                return;
+            }
+            for (int i = 0; i < levels.length; i++) {
+                if (series.contains(levelNames[i])) {
+                    grow((double[]) growths[i].get(model), (double[]) levels[i].get(model), from, years, 1);
+                }
+            }
+            if (series.contains(sumName)) {
+                add(model, sum, from, years);
+            }
+        }
+
+        void runParallel(BaseModel model) {
+            int years = (int) this.years.get(model);
+            if (!worthParallel(years)) {
+                model.run();
+                return;
+            }
+            double[] sum = sum(model, years);
+            // the levels don't depend on each other, only the sum needs all of them
+            Runnable[] steps = new Runnable[levels.length];
+            for (int i = 0; i < levels.length; i++) {
+                double[] growth = (double[]) growths[i].get(model), level = (double[]) levels[i].get(model);
+                steps[i] = () -> cumulativeProduct(growth, level, years);
+            }
+            inParallel(steps);
+            double[][] terms = terms(model);
+            forEachBlock(years, (from, to) -> add(terms, sum, from, to));
+        }
+
+        // a block of entities period by period (see BaseModel.runPanel); the loops over entities run over
+        // consecutive elements of every array, so the JIT vectorizes them
+        void runPanel(Panel panel, int fromEntity, int toEntity) {
+            int n = panel.getEntities();
+            double[][] growth = new double[levels.length][], level = new double[levels.length][];
+            for (int i = 0; i < levels.length; i++) {
+                growth[i] = panel.series(growthNames[i]);
+                level[i] = panel.series(levelNames[i]);
+            }
+            double[] sum = panel.series(sumName);
+            add(level, sum, fromEntity, toEntity);
+            for (int t = 1; t < panel.getYears(); t++) {
+                int row = t * n;
+                for (int i = 0; i < levels.length; i++) {
+                    grow(growth[i], level[i], row + fromEntity, row + toEntity, n);
+                }
+                add(level, sum, row + fromEntity, row + toEntity);
+            }
+        }
+
+        // a new array unless the controller pools arrays, every period is set by the caller
+        private double[] sum(Object model, int years) {
+            double[] sum = ArrayPool.reuse((double[]) this.sum.get(model), years);
+            this.sum.set(model, sum);
+            return sum;
+        }
+
+        private double[][] terms(Object model) {
+            double[][] terms = new double[levels.length][];
+            for (int i = 0; i < levels.length; i++) {
+                terms[i] = (double[]) levels[i].get(model);
+            }
+            return terms;
+        }
+
+        private void add(Object model, double[] sum, int from, int to) {
+            add(terms(model), sum, from, to);
+        }
+
+        // term by term in the order given, the same roundings as the sum written out in one expression
+        private void add(double[][] terms, double[] sum, int from, int to) {
+            for (int i = 0; i < terms.length; i++) {
+                double[] term = terms[i];
+                if (i == 0 && subtracted[i]) {
+                    for (int t = from; t < to; t++) sum[t] = -term[t];
+                } else if (i == 0) {
+                    System.arraycopy(term, from, sum, from, to - from);
+                } else if (subtracted[i]) {
+                    for (int t = from; t < to; t++) sum[t] -= term[t];
+                } else {
+                    for (int t = from; t < to; t++) sum[t] += term[t];
+                }
+            }
+        }
+
+        // level[t] = growth[t] * level[t - stride] for t in from..to-1
+        private static void grow(double[] growth, double[] level, int from, int to, int stride) {
+            for (int t = from; t < to; t++) {
+                level[t] = growth[t] * level[t - stride];
+            }
+        }
+    }
+}
\ No newline at end of file
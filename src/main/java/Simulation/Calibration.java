@@ -0,0 +1,409 @@
+package Simulation;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+import Models.BaseModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// fits free input series, e.g. growth factors, so that model series match target values: each free series
+// holds one value in the calibrated periods, found by a parallel Nelder-Mead search (the p worst vertices
+// move at once, and every candidate point of an iteration is evaluated at the same time on model replicas)
+public class Calibration {
+    public static final int DEFAULT_MAX_EVALUATIONS = 100_000;
+    public static final double DEFAULT_TOLERANCE = 1e-12; // of the objective and of the free values
+    public static final double DEFAULT_INITIAL_STEP = 0.05; // relative to the starting values
+
+    private final Controller baseline;
+    private final Map<String, double[]> targets = new LinkedHashMap<>();
+    private final List<String> free = new ArrayList<>();
+    private final List<double[]> bounds = new ArrayList<>(); // lower and upper bound per free series
+    private int periodFrom = 0;
+    private int periodTo = Integer.MAX_VALUE; // all periods
+    private int maxEvaluations = DEFAULT_MAX_EVALUATIONS;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private double initialStep = DEFAULT_INITIAL_STEP;
+    private int parallelVertices = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // the controller has to have its data read, its values are the start of the search
+    public Calibration(Controller baseline) {
+        this.baseline = baseline;
+    }
+
+    // values by period from 0, NaN where a period has no target; the objective is the sum of squared
+    // relative differences, absolute where the target is zero
+    public Calibration target(String series, double... values) {
+        targets.put(series, values.clone());
+        return this;
+    }
+
+    public Calibration free(String series) {
+        return free(series, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    // values outside the bounds are moved onto them before the model runs
+    public Calibration free(String series, double lower, double upper) {
+        if (!(lower <= upper)) {
+            throw new IllegalArgumentException("Invalid bounds of " + series + ": " + lower + ".." + upper);
+        }
+        free.add(series);
+        bounds.add(new double[]{lower, upper});
+        return this;
+    }
+
+    // the free series get their value in periods from..to-1 and keep their data elsewhere
+    public Calibration periods(int from, int to) {
+        if (from < 0 || to <= from) {
+            throw new IllegalArgumentException("Invalid periods: " + from + ".." + to);
+        }
+        this.periodFrom = from;
+        this.periodTo = to;
+        return this;
+    }
+
+    public Calibration maxEvaluations(int evaluations) {
+        if (evaluations < 1) {
+            throw new IllegalArgumentException("maxEvaluations must be positive: " + evaluations);
+        }
+        this.maxEvaluations = evaluations;
+        return this;
+    }
+
+    public Calibration tolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must not be negative: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public Calibration initialStep(double relativeStep) {
+        if (!(relativeStep > 0)) {
+            throw new IllegalArgumentException("initialStep must be positive: " + relativeStep);
+        }
+        this.initialStep = relativeStep;
+        return this;
+    }
+
+    // how many of the worst vertices move in one iteration (at most half), each adds four model runs
+    // per iteration; the result depends on this but not on the number of threads
+    public Calibration parallelVertices(int vertices) {
+        if (vertices < 1) {
+            throw new IllegalArgumentException("parallelVertices must be positive: " + vertices);
+        }
+        this.parallelVertices = vertices;
+        return this;
+    }
+
+    public Calibration threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public CalibrationResult run() throws InterruptedException {
+        if (free.isEmpty() || targets.isEmpty()) {
+            throw new IllegalArgumentException("Calibration needs at least one free series and one target");
+        }
+        BaseModel model = baseline.getModel();
+        BindingPlan plan = baseline.getBindingPlan();
+        Map<String, Set<String>> dependencies = model.dependencies();
+
+        int[] freeFields = new int[free.size()];
+        for (int i = 0; i < freeFields.length; i++) {
+            freeFields[i] = seriesField(plan, model, free.get(i));
+            if (dependencies != null && dependencies.containsKey(free.get(i))) {
+                throw new IllegalArgumentException("Series is computed by the model, it can't be free: " + free.get(i));
+            }
+        }
+        int[] targetFields = new int[targets.size()];
+        double[][] targetValues = targets.values().toArray(new double[0][]);
+        List<String> targetNames = List.copyOf(targets.keySet());
+        for (int i = 0; i < targetFields.length; i++) {
+            targetFields[i] = seriesField(plan, model, targetNames.get(i));
+        }
+
+        ModelReplica reference = new ModelReplica(model);
+        int years = reference.getYears();
+        int first = Math.min(periodFrom, years);
+        int last = Math.min(periodTo, years);
+        if (first == last) {
+            throw new IllegalArgumentException("No periods to calibrate, the data has " + years);
+        }
+        Problem problem = new Problem(freeFields, bounds.toArray(new double[0][]), targetFields, targetValues,
+                first, last, dependencies == null);
+
+        // the simplex starts from the mean of each free series in the calibrated periods
+        int n = freeFields.length;
+        double[] start = new double[n];
+        for (int i = 0; i < n; i++) {
+            double[] values = reference.baseline(freeFields[i]);
+            for (int t = first; t < last; t++) {
+                start[i] += values[t] / (last - first);
+            }
+        }
+
+        ThreadLocal<Evaluator> evaluators = ThreadLocal.withInitial(() -> new Evaluator(new ModelReplica(model), problem));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Search search = new Search(problem, executor, evaluators);
+            search.minimize(start);
+
+            double[] best = search.points[0];
+            Evaluator fitted = new Evaluator(reference, problem);
+            fitted.evaluate(best);
+            double[][] fittedSeries = new double[targetFields.length][];
+            for (int i = 0; i < targetFields.length; i++) {
+                fittedSeries[i] = reference.series(targetFields[i]).clone();
+            }
+            return new CalibrationResult(List.copyOf(free), best, targetNames, fittedSeries, search.values[0],
+                    first, last, search.evaluations, search.iterations, search.converged);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Calibration run failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int seriesField(BindingPlan plan, BaseModel model, String name) {
+        int field = plan.indexOf(name);
+        if (field < 0 || !plan.isSeries(field)) {
+            throw new IllegalArgumentException("Model has no @Bind series: " + name);
+        }
+        if (plan.getSeries(model, field) == null) {
+            throw new IllegalArgumentException("Series has no values: " + name);
+        }
+        return field;
+    }
+
+    // what is fitted to what, shared by every evaluator
+    private record Problem(int[] freeFields, double[][] bounds, int[] targetFields, double[][] targetValues,
+                           int from, int to, boolean opaque) {
+        double[] clamp(double[] x) {
+            double[] clamped = x.clone();
+            for (int i = 0; i < clamped.length; i++) {
+                clamped[i] = Math.max(bounds[i][0], Math.min(bounds[i][1], clamped[i]));
+            }
+            return clamped;
+        }
+    }
+
+    // runs the model of one replica for candidate values, one per worker thread; only array elements are written
+    private static final class Evaluator {
+        private final ModelReplica replica;
+        private final Problem problem;
+
+        Evaluator(ModelReplica replica, Problem problem) {
+            this.replica = replica;
+            this.problem = problem;
+            replica.reset();
+            replica.run(); // runFrom needs the periods before the calibrated ones
+        }
+
+        double evaluate(double[] x) {
+            if (problem.opaque()) {
+                replica.reset(); // run() of such a model may depend on anything it changed
+            }
+            for (int i = 0; i < x.length; i++) {
+                Arrays.fill(replica.series(problem.freeFields()[i]), problem.from(), problem.to(), x[i]);
+            }
+            if (problem.opaque()) {
+                replica.run();
+            } else {
+                replica.runFrom(problem.from());
+            }
+
+            double sum = 0;
+            for (int k = 0; k < problem.targetFields().length; k++) {
+                double[] target = problem.targetValues()[k];
+                double[] series = replica.series(problem.targetFields()[k]);
+                int count = Math.min(target.length, series.length);
+                for (int t = 0; t < count; t++) {
+                    if (!Double.isNaN(target[t])) {
+                        double difference = series[t] - target[t];
+                        if (target[t] != 0) {
+                            difference /= target[t];
+                        }
+                        sum += difference * difference;
+                    }
+                }
+            }
+            return Double.isNaN(sum) ? Double.POSITIVE_INFINITY : sum;
+        }
+    }
+
+    // the Nelder-Mead simplex, kept sorted by objective value
+    private final class Search {
+        private final Problem problem;
+        private final ExecutorService executor;
+        private final ThreadLocal<Evaluator> evaluators;
+        double[][] points;
+        double[] values;
+        int evaluations;
+        int iterations;
+        boolean converged;
+
+        Search(Problem problem, ExecutorService executor, ThreadLocal<Evaluator> evaluators) {
+            this.problem = problem;
+            this.executor = executor;
+            this.evaluators = evaluators;
+        }
+
+        void minimize(double[] start) throws InterruptedException, ExecutionException {
+            int n = start.length;
+            points = new double[n + 1][];
+            points[0] = start.clone();
+            for (int i = 0; i < n; i++) {
+                double[] point = start.clone();
+                point[i] += start[i] != 0 ? initialStep * start[i] : 0.00025;
+                points[i + 1] = point;
+            }
+            values = evaluateAll(points);
+            sort();
+
+            // at least half of the vertices stay for the centroid, or the simplex collapses onto the best one
+            int p = Math.min(parallelVertices, Math.max(1, (n + 1) / 2));
+            while (!(converged = hasConverged()) && evaluations + 4 * p <= maxEvaluations) {
+                iterations++;
+                int kept = n + 1 - p;
+                double[] centroid = new double[n];
+                for (int v = 0; v < kept; v++) {
+                    for (int i = 0; i < n; i++) {
+                        centroid[i] += points[v][i] / kept;
+                    }
+                }
+
+                // reflection, expansion, outside and inside contraction of each moving vertex at once
+                double[][] candidates = new double[4 * p][];
+                for (int j = 0; j < p; j++) {
+                    double[] worst = points[kept + j];
+                    candidates[4 * j] = towards(centroid, worst, -1);
+                    candidates[4 * j + 1] = towards(centroid, worst, -2);
+                    candidates[4 * j + 2] = towards(centroid, worst, -0.5);
+                    candidates[4 * j + 3] = towards(centroid, worst, 0.5);
+                }
+                double[] candidateValues = evaluateAll(candidates);
+
+                boolean moved = false;
+                double best = values[0];
+                double worstKept = values[kept - 1];
+                for (int j = 0; j < p; j++) {
+                    int v = kept + j;
+                    int c = 4 * j;
+                    double reflected = candidateValues[c];
+                    int chosen = -1;
+                    if (reflected < best) {
+                        chosen = candidateValues[c + 1] < reflected ? c + 1 : c;
+                    } else if (reflected < worstKept) {
+                        chosen = c;
+                    } else if (reflected < values[v]) {
+                        chosen = candidateValues[c + 2] <= reflected ? c + 2 : -1;
+                    } else {
+                        chosen = candidateValues[c + 3] < values[v] ? c + 3 : -1;
+                    }
+                    if (chosen >= 0) {
+                        points[v] = candidates[chosen];
+                        values[v] = candidateValues[chosen];
+                        moved = true;
+                    }
+                }
+
+                if (!moved) {
+                    // every moving vertex failed, the simplex shrinks towards the best vertex
+                    if (evaluations + n > maxEvaluations) {
+                        break;
+                    }
+                    double[][] shrunk = new double[n][];
+                    for (int v = 1; v <= n; v++) {
+                        shrunk[v - 1] = towards(points[0], points[v], 0.5);
+                    }
+                    double[] shrunkValues = evaluateAll(shrunk);
+                    for (int v = 1; v <= n; v++) {
+                        points[v] = shrunk[v - 1];
+                        values[v] = shrunkValues[v - 1];
+                    }
+                }
+                sort();
+            }
+        }
+
+        // from + factor * (to - from)
+        private double[] towards(double[] from, double[] to, double factor) {
+            double[] point = new double[from.length];
+            for (int i = 0; i < point.length; i++) {
+                point[i] = from[i] + factor * (to[i] - from[i]);
+            }
+            return point;
+        }
+
+        private boolean hasConverged() {
+            double spread = values[values.length - 1] - values[0];
+            if (!(spread <= tolerance * Math.max(1, Math.abs(values[0])))) {
+                return false;
+            }
+            for (int v = 1; v < points.length; v++) {
+                for (int i = 0; i < points[v].length; i++) {
+                    if (Math.abs(points[v][i] - points[0][i]) > tolerance * Math.max(1, Math.abs(points[0][i]))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void sort() {
+            Integer[] order = new Integer[points.length];
+            for (int v = 0; v < order.length; v++) {
+                order[v] = v;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(v -> values[v])); // stable, ties keep their order
+            double[][] sortedPoints = new double[points.length][];
+            double[] sortedValues = new double[values.length];
+            for (int v = 0; v < order.length; v++) {
+                sortedPoints[v] = points[order[v]];
+                sortedValues[v] = values[order[v]];
+            }
+            points = sortedPoints;
+            values = sortedValues;
+        }
+
+        // contiguous slices of the points per task, the values don't depend on which thread ran them;
+        // points outside the bounds are moved onto them first
+        private double[] evaluateAll(double[][] xs) throws InterruptedException, ExecutionException {
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = problem.clamp(xs[i]);
+            }
+            double[] results = new double[xs.length];
+            int tasks = Math.min(threads, xs.length);
+            List<Future<?>> parts = new ArrayList<>(tasks);
+            for (int k = 0; k < tasks; k++) {
+                int from = xs.length * k / tasks;
+                int to = xs.length * (k + 1) / tasks;
+                parts.add(executor.submit(() -> {
+                    Evaluator evaluator = evaluators.get();
+                    for (int i = from; i < to; i++) {
+                        results[i] = evaluator.evaluate(xs[i]);
+                    }
+                }));
+            }
+            for (Future<?> part : parts) {
+                part.get();
+            }
+            evaluations += xs.length;
+            return results;
+        }
+    }
+}
\ No newline at end of file
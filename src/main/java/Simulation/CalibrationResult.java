@@ -0,0 +1,100 @@
+package Simulation;
+
+import Controller.Controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+// the best values found for the free series of a calibration and the target series they give
+public class CalibrationResult {
+    private final List<String> freeNames;
+    private final double[] values;
+    private final List<String> targetNames;
+    private final double[][] fitted;
+    private final double objective;
+    private final int periodFrom; // the free series hold their value in periods periodFrom..periodTo-1
+    private final int periodTo;
+    private final int evaluations;
+    private final int iterations;
+    private final boolean converged;
+
+    CalibrationResult(List<String> freeNames, double[] values, List<String> targetNames, double[][] fitted,
+                      double objective, int periodFrom, int periodTo, int evaluations, int iterations, boolean converged) {
+        this.freeNames = freeNames;
+        this.values = values;
+        this.targetNames = targetNames;
+        this.fitted = fitted;
+        this.objective = objective;
+        this.periodFrom = periodFrom;
+        this.periodTo = periodTo;
+        this.evaluations = evaluations;
+        this.iterations = iterations;
+        this.converged = converged;
+    }
+
+    public List<String> getFreeNames() {
+        return freeNames;
+    }
+
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    public double getValue(String free) {
+        return values[indexOf(freeNames, free, "free series")];
+    }
+
+    // the target series as the model computes it with the best values
+    public double[] getFitted(String target) {
+        return fitted[indexOf(targetNames, target, "target")].clone();
+    }
+
+    // sum of squared relative differences to the targets
+    public double getObjective() {
+        return objective;
+    }
+
+    public int getPeriodFrom() {
+        return periodFrom;
+    }
+
+    public int getPeriodTo() {
+        return periodTo;
+    }
+
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    // false if the search stopped at the evaluation limit
+    public boolean isConverged() {
+        return converged;
+    }
+
+    // to put the best values into the controller's series, the model and affected scripts run again
+    public void applyTo(Controller controller) {
+        for (int i = 0; i < values.length; i++) {
+            double[] periods = new double[periodTo - periodFrom];
+            Arrays.fill(periods, values[i]);
+            controller.updateSeries(freeNames.get(i), periodFrom, periods);
+        }
+    }
+
+    private static int indexOf(List<String> names, String name, String kind) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a " + kind + " of this calibration: " + name);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "CalibrationResult[values=" + Arrays.toString(values) + ", objective=" + objective
+                + ", evaluations=" + evaluations + ", iterations=" + iterations + ", converged=" + converged + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package Simulation;
+
+import java.util.SplittableRandom;
+
+// how a growth series varies around its value from the data file, sampled independently for every year
+@FunctionalInterface
+public interface Distribution {
+    double sample(SplittableRandom random, double base);
+
+    static Distribution fixed() {
+        return (random, base) -> base;
+    }
+
+    // base + N(0, sd)
+    static Distribution normal(double sd) {
+        return (random, base) -> base + sd * random.nextGaussian();
+    }
+
+    // base * exp(N(-sigma^2 / 2, sigma)), so the mean stays at base
+    static Distribution logNormal(double sigma) {
+        double drift = -0.5 * sigma * sigma;
+        return (random, base) -> base * Math.exp(drift + sigma * random.nextGaussian());
+    }
+
+    // uniform in [base - halfWidth, base + halfWidth)
+    static Distribution uniform(double halfWidth) {
+        return (random, base) -> base - halfWidth + 2 * halfWidth * random.nextDouble();
+    }
+}
@@ -0,0 +1,96 @@
+package Simulation;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+import Models.BaseModel;
+import Models.ModelRegistry;
+
+import java.nio.DoubleBuffer;
+
+// a private copy of a loaded model that can be reset to the loaded state and run again without reading data,
+// one replica per worker thread
+public final class ModelReplica {
+    private final BaseModel model;
+    private final BindingPlan plan;
+    private final double[][] baseline; // by plan field index, null for fields without values
+
+    public ModelReplica(BaseModel source) {
+        this.plan = BindingPlan.of(source);
+        this.model = ModelRegistry.create(source.getClass());
+        this.baseline = new double[plan.size()][];
+
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f)) {
+                double[] values = plan.getSeries(source, f);
+                if (values != null) {
+                    baseline[f] = values.clone();
+                    plan.setSeries(model, f, values.clone());
+                }
+            }
+        }
+        plan.setYears(model, plan.getYears(source));
+    }
+
+    // a copy of the controller's model read through its read-only series, so the controller keeps its arrays
+    public ModelReplica(Controller source) {
+        this.model = ModelRegistry.create(source.getModelName());
+        this.plan = BindingPlan.of(model);
+        this.baseline = new double[plan.size()][];
+
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f)) {
+                DoubleBuffer values = source.getSeries(plan.name(f));
+                if (values != null) {
+                    baseline[f] = new double[values.remaining()];
+                    values.get(baseline[f]);
+                    plan.setSeries(model, f, baseline[f].clone());
+                }
+            }
+        }
+        plan.setYears(model, source.getYears());
+    }
+
+    // to copy the baseline values back into the model's arrays, reusing them
+    public void reset() {
+        for (int f = 0; f < baseline.length; f++) {
+            if (baseline[f] != null) {
+                double[] values = plan.getSeries(model, f);
+                if (values == null || values.length != baseline[f].length) {
+                    values = new double[baseline[f].length];
+                    plan.setSeries(model, f, values);
+                }
+                System.arraycopy(baseline[f], 0, values, 0, values.length);
+            }
+        }
+    }
+
+    public void run() {
+        model.run();
+    }
+
+    // periods before from have to hold the results of an earlier run (see BaseModel.runFrom)
+    public void runFrom(int from) {
+        model.runFrom(from);
+    }
+
+    public BaseModel getModel() {
+        return model;
+    }
+
+    public BindingPlan getPlan() {
+        return plan;
+    }
+
+    public int getYears() {
+        return plan.getYears(model);
+    }
+
+    public double[] baseline(int field) {
+        return baseline[field];
+    }
+
+    // the array the model currently holds, writes go straight into the model
+    public double[] series(int field) {
+        return plan.getSeries(model, field);
+    }
+}
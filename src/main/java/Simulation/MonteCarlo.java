@@ -0,0 +1,137 @@
+package Simulation;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// stochastic runs of a loaded model: growth series are drawn from their distributions for every path,
+// and every @Bind series is aggregated per year without keeping the paths
+public class MonteCarlo {
+    public static final double DEFAULT_ACCURACY = 0.001; // relative error of the quantiles
+    private static final int BLOCKS = 64; // units of work, each with its own random stream and statistics
+
+    private final Controller baseline;
+    private final Map<String, Distribution> varied = new LinkedHashMap<>();
+    private double accuracy = DEFAULT_ACCURACY;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // the controller has to have its data read, the model state after readDataFrom is the starting point of every path
+    public MonteCarlo(Controller baseline) {
+        this.baseline = baseline;
+    }
+
+    public MonteCarlo vary(String series, Distribution distribution) {
+        BindingPlan plan = baseline.getBindingPlan();
+        int field = plan.indexOf(series);
+        if (field < 0 || !plan.isSeries(field)) {
+            throw new IllegalArgumentException("Model has no @Bind series: " + series);
+        }
+        if (baseline.getSeries(series) == null) {
+            throw new IllegalArgumentException("Series has no values: " + series);
+        }
+        varied.put(series, distribution);
+        return this;
+    }
+
+    public MonteCarlo accuracy(double relativeAccuracy) {
+        this.accuracy = relativeAccuracy;
+        return this;
+    }
+
+    public MonteCarlo threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    // the same seed gives the same result for any number of threads
+    public MonteCarloResult run(int paths, long seed) throws InterruptedException {
+        if (paths < 1) {
+            throw new IllegalArgumentException("paths must be positive: " + paths);
+        }
+        // fixed blocks of paths with their own random streams, independent of the number of threads
+        int blocks = Math.min(paths, BLOCKS);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            randoms[b] = root.split();
+        }
+
+        int workers = Math.min(threads, blocks);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            // a window of blocks in flight ahead of the merge, so at most that many unmerged results are alive
+            int window = Math.min(blocks, 2 * workers);
+            List<Future<MonteCarloResult>> parts = new ArrayList<>(blocks);
+            for (int b = 0; b < window; b++) {
+                parts.add(submitBlock(executor, paths, blocks, b, randoms[b]));
+            }
+
+            // merged in block order, so floating point sums don't depend on timing
+            MonteCarloResult result = null;
+            for (int b = 0; b < blocks; b++) {
+                MonteCarloResult part = parts.get(b).get();
+                parts.set(b, null);
+                if (b + window < blocks) {
+                    parts.add(submitBlock(executor, paths, blocks, b + window, randoms[b + window]));
+                }
+                if (result == null) {
+                    result = part;
+                } else {
+                    result.merge(part);
+                }
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Monte Carlo path failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Future<MonteCarloResult> submitBlock(ExecutorService executor, int paths, int blocks, int b, SplittableRandom random) {
+        int from = (int) ((long) paths * b / blocks);
+        int to = (int) ((long) paths * (b + 1) / blocks);
+        return executor.submit(() -> runBlock(to - from, random));
+    }
+
+    private MonteCarloResult runBlock(int paths, SplittableRandom random) {
+        ModelReplica replica = new ModelReplica(baseline);
+        BindingPlan plan = replica.getPlan();
+        int years = replica.getYears();
+
+        int[] variedFields = new int[varied.size()];
+        Distribution[] distributions = new Distribution[varied.size()];
+        int v = 0;
+        for (Map.Entry<String, Distribution> entry : varied.entrySet()) {
+            variedFields[v] = plan.indexOf(entry.getKey());
+            distributions[v++] = entry.getValue();
+        }
+
+        MonteCarloResult result = new MonteCarloResult(plan, years, accuracy);
+        for (int p = 0; p < paths; p++) {
+            replica.reset();
+            for (int i = 0; i < variedFields.length; i++) {
+                double[] base = replica.baseline(variedFields[i]);
+                double[] values = replica.series(variedFields[i]);
+                for (int t = 0; t < years; t++) {
+                    values[t] = distributions[i].sample(random, base[t]);
+                }
+            }
+            replica.run();
+            result.add(replica);
+        }
+        return result;
+    }
+}
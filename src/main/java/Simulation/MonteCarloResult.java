@@ -0,0 +1,127 @@
+package Simulation;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+import Controller.ResultWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// per series and year statistics of a Monte Carlo run
+public class MonteCarloResult {
+    public static final double[] DEFAULT_QUANTILES = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    private final int years;
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> fields = new ArrayList<>(); // plan field of each name
+    private final List<QuantileSketch[]> sketches = new ArrayList<>(); // [year] for each name
+
+    MonteCarloResult(BindingPlan plan, int years, double accuracy) {
+        this.years = years;
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f)) {
+                QuantileSketch[] perYear = new QuantileSketch[years];
+                for (int t = 0; t < years; t++) {
+                    perYear[t] = new QuantileSketch(accuracy);
+                }
+                names.add(plan.name(f));
+                fields.add(f);
+                sketches.add(perYear);
+            }
+        }
+    }
+
+    void add(ModelReplica replica) {
+        for (int s = 0; s < names.size(); s++) {
+            double[] values = replica.series(fields.get(s));
+            if (values == null) {
+                continue;
+            }
+            QuantileSketch[] perYear = sketches.get(s);
+            for (int t = 0; t < years; t++) {
+                perYear[t].add(values[t]);
+            }
+        }
+    }
+
+    void merge(MonteCarloResult other) {
+        for (int s = 0; s < names.size(); s++) {
+            QuantileSketch[] perYear = sketches.get(s);
+            QuantileSketch[] otherPerYear = other.sketches.get(s);
+            for (int t = 0; t < years; t++) {
+                perYear[t].merge(otherPerYear[t]);
+            }
+        }
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    public List<String> getSeriesNames() {
+        return List.copyOf(names);
+    }
+
+    public QuantileSketch get(String series, int year) {
+        int s = names.indexOf(series);
+        if (s < 0) {
+            throw new IllegalArgumentException("No statistics for series: " + series);
+        }
+        return sketches.get(s)[year];
+    }
+
+    public double[] mean(String series) {
+        double[] values = new double[years];
+        for (int t = 0; t < years; t++) {
+            values[t] = get(series, t).getMean();
+        }
+        return values;
+    }
+
+    public double[] variance(String series) {
+        double[] values = new double[years];
+        for (int t = 0; t < years; t++) {
+            values[t] = get(series, t).getVariance();
+        }
+        return values;
+    }
+
+    public double[] quantile(String series, double q) {
+        double[] values = new double[years];
+        for (int t = 0; t < years; t++) {
+            values[t] = get(series, t).quantile(q);
+        }
+        return values;
+    }
+
+    public void writeFanChartTo(Appendable out) throws IOException {
+        writeFanChartTo(out, DEFAULT_QUANTILES);
+    }
+
+    // rows NAME_mean, NAME_sd and NAME_pXX for every series, in the layout of getResultsAsTsv
+    public void writeFanChartTo(Appendable out, double[] quantiles) throws IOException {
+        ResultWriter writer = ResultWriter.to(out, ResultWriter.Format.TSV);
+        writer.header(Controller.START_YEAR, years);
+        for (String name : names) {
+            writer.row(name + "_mean", mean(name), years);
+            double[] sd = variance(name);
+            for (int t = 0; t < years; t++) {
+                sd[t] = Math.sqrt(sd[t]);
+            }
+            writer.row(name + "_sd", sd, years);
+            for (double q : quantiles) {
+                writer.row(name + "_p" + percentLabel(q), quantile(name, q), years);
+            }
+        }
+        writer.finish();
+    }
+
+    private static String percentLabel(double q) {
+        double percent = q * 100;
+        if (percent == Math.rint(percent)) {
+            return String.format("%02d", (int) percent);
+        }
+        return Double.toString(percent).replace('.', '_');
+    }
+}
@@ -0,0 +1,290 @@
+package Simulation;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+import Controller.ScriptAnalysis;
+import Controller.ScriptCache;
+import Models.BaseModel;
+import groovy.lang.Binding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// finite-difference sensitivities of model series and script results to every period of chosen input series:
+// each input period is nudged on a private model copy and the model reruns from that period only
+public class Sensitivity {
+    public static final double DEFAULT_STEP = 1e-6; // relative to the input value
+
+    private final Controller baseline;
+    private final List<String> inputs = new ArrayList<>();
+    private final List<String> outputs = new ArrayList<>();
+    private double step = DEFAULT_STEP;
+    private int periodFrom = 0;
+    private int periodTo = Integer.MAX_VALUE; // all periods
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // the controller has to have its data read, scripts it ran can provide outputs
+    public Sensitivity(Controller baseline) {
+        this.baseline = baseline;
+    }
+
+    // by default every series the model doesn't compute
+    public Sensitivity inputs(String... names) {
+        inputs.addAll(List.of(names));
+        return this;
+    }
+
+    // @Bind series or variables assigned by the controller's scripts, by default every series the model computes
+    public Sensitivity outputs(String... names) {
+        outputs.addAll(List.of(names));
+        return this;
+    }
+
+    // to nudge inputs only in periods from..to-1, the result keeps a row per nudged period
+    public Sensitivity periods(int from, int to) {
+        if (from < 0 || to <= from) {
+            throw new IllegalArgumentException("Invalid periods: " + from + ".." + to);
+        }
+        this.periodFrom = from;
+        this.periodTo = to;
+        return this;
+    }
+
+    public Sensitivity step(double relativeStep) {
+        if (!(relativeStep > 0)) {
+            throw new IllegalArgumentException("step must be positive: " + relativeStep);
+        }
+        this.step = relativeStep;
+        return this;
+    }
+
+    public Sensitivity threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    // one model run per nudged input period, the result keeps inputs * periods * outputs * years values
+    public SensitivityResult run() throws InterruptedException {
+        BaseModel model = baseline.getModel();
+        BindingPlan plan = baseline.getBindingPlan();
+        Map<String, Set<String>> dependencies = model.dependencies();
+
+        List<String> inputNames = inputs.isEmpty() ? defaultInputs(plan, dependencies) : List.copyOf(inputs);
+        int[] inputFields = new int[inputNames.size()];
+        for (int i = 0; i < inputFields.length; i++) {
+            inputFields[i] = seriesField(plan, model, inputNames.get(i));
+            if (dependencies != null && dependencies.containsKey(inputNames.get(i))) {
+                throw new IllegalArgumentException("Series is computed by the model, it can't be an input: " + inputNames.get(i));
+            }
+        }
+
+        List<String> outputNames = outputs.isEmpty() ? defaultOutputs(plan, dependencies) : List.copyOf(outputs);
+        Outputs resolved = new Outputs(plan, outputNames, baseline.getExecutedScripts());
+
+        ModelReplica reference = new ModelReplica(model);
+        int years = reference.getYears();
+        double[][] baseInputs = new double[inputFields.length][];
+        for (int i = 0; i < inputFields.length; i++) {
+            baseInputs[i] = reference.baseline(inputFields[i]).clone();
+        }
+        reference.run();
+        double[][] baseOutputs = new double[outputNames.size()][years];
+        resolved.collect(reference, baseOutputs);
+
+        int first = Math.min(periodFrom, years);
+        int last = Math.min(periodTo, years);
+        long size = (long) inputFields.length * (last - first) * outputNames.size() * years;
+        if (size * Double.BYTES > Runtime.getRuntime().maxMemory() / 2) {
+            throw new IllegalArgumentException("Jacobian of " + size + " values doesn't fit into memory, "
+                    + "choose fewer inputs, outputs or periods");
+        }
+        SensitivityResult result = new SensitivityResult(inputNames, outputNames, years, first, last, baseInputs, baseOutputs);
+        boolean opaque = dependencies == null;
+
+        // contiguous ranges of periods per input, each range costs one full run to start from
+        int periods = last - first;
+        int ranges = Math.max(1, Math.min(periods, (threads * 4 + inputFields.length - 1) / inputFields.length));
+        ThreadLocal<ModelReplica> replicas = ThreadLocal.withInitial(() -> new ModelReplica(model));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> parts = new ArrayList<>();
+            for (int i = 0; i < inputFields.length; i++) {
+                for (int r = 0; r < ranges; r++) {
+                    int input = i;
+                    int from = first + (int) ((long) periods * r / ranges);
+                    int to = first + (int) ((long) periods * (r + 1) / ranges);
+                    parts.add(executor.submit(() -> runRange(replicas.get(), input, inputFields[input], from, to,
+                            opaque, resolved, result)));
+                }
+            }
+            for (Future<?> part : parts) {
+                part.get();
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sensitivity run failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // latest periods first: a nudge at s only changes periods from s on, and rerunning from s-1
+    // with the original value at s brings them back, so the replica is reset once per range
+    private void runRange(ModelReplica replica, int input, int field, int from, int to,
+                          boolean opaque, Outputs outputs, SensitivityResult result) {
+        replica.reset();
+        replica.run();
+        double[][] values = new double[outputs.size()][result.getYears()];
+        for (int s = to - 1; s >= from; s--) {
+            if (opaque) {
+                replica.reset(); // run() of such a model may depend on anything it changed
+            }
+            double[] series = replica.series(field);
+            double original = series[s];
+            double h = step * (original != 0 ? Math.abs(original) : 1);
+            series[s] = original + h;
+            if (opaque) {
+                replica.run();
+            } else {
+                replica.runFrom(s);
+            }
+            outputs.collect(replica, values);
+            result.setDifferences(input, s, values, h);
+            series[s] = original;
+        }
+    }
+
+    private static int seriesField(BindingPlan plan, BaseModel model, String name) {
+        int field = plan.indexOf(name);
+        if (field < 0 || !plan.isSeries(field)) {
+            throw new IllegalArgumentException("Model has no @Bind series: " + name);
+        }
+        if (plan.getSeries(model, field) == null) {
+            throw new IllegalArgumentException("Series has no values: " + name);
+        }
+        return field;
+    }
+
+    private static List<String> defaultInputs(BindingPlan plan, Map<String, Set<String>> dependencies) {
+        List<String> names = new ArrayList<>();
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f) && (dependencies == null || !dependencies.containsKey(plan.name(f)))) {
+                names.add(plan.name(f));
+            }
+        }
+        return names;
+    }
+
+    private static List<String> defaultOutputs(BindingPlan plan, Map<String, Set<String>> dependencies) {
+        if (dependencies == null) {
+            return defaultInputs(plan, null);
+        }
+        List<String> names = new ArrayList<>();
+        for (int f = 0; f < plan.size(); f++) {
+            if (plan.isSeries(f) && dependencies.containsKey(plan.name(f))) {
+                names.add(plan.name(f));
+            }
+        }
+        return names;
+    }
+
+    // where each output comes from: a model field, or a variable of the last script that assigns it, which
+    // runs again with every earlier script it depends on, in the order they ran, sharing one binding
+    private static final class Outputs {
+        private final int[] fields; // -1 for script outputs
+        private final String[] names;
+        private final List<String> scripts = new ArrayList<>(); // the chain of scripts the outputs need
+
+        Outputs(BindingPlan plan, List<String> outputNames, List<String> executedScripts) {
+            int n = outputNames.size();
+            fields = new int[n];
+            names = outputNames.toArray(new String[0]);
+
+            List<ScriptAnalysis> analyses = new ArrayList<>();
+            for (String script : executedScripts) {
+                analyses.add(ScriptCache.shared().analyze(script));
+            }
+            boolean[] needed = new boolean[analyses.size()];
+            for (int o = 0; o < n; o++) {
+                int field = plan.indexOf(names[o]);
+                fields[o] = field >= 0 && plan.isSeries(field) ? field : -1;
+                if (fields[o] < 0) {
+                    int last = -1;
+                    for (int i = analyses.size() - 1; i >= 0 && last < 0; i--) {
+                        if (analyses.get(i).writes().contains(names[o])) {
+                            last = i;
+                        }
+                    }
+                    if (last < 0) {
+                        throw new IllegalArgumentException("No @Bind series or script result: " + names[o]);
+                    }
+                    needed[last] = true;
+                }
+            }
+            // from the last script back, the earlier scripts a needed one reads from are needed too
+            for (int i = analyses.size() - 1; i >= 0; i--) {
+                if (!needed[i]) {
+                    continue;
+                }
+                for (int j = 0; j < i; j++) {
+                    needed[j] |= providesFor(analyses.get(j), analyses.get(i));
+                }
+            }
+            for (int i = 0; i < needed.length; i++) {
+                if (needed[i]) {
+                    scripts.add(executedScripts.get(i));
+                }
+            }
+        }
+
+        // whether a later script may read what an earlier one assigned or changed
+        private static boolean providesFor(ScriptAnalysis earlier, ScriptAnalysis later) {
+            if (earlier.dynamic() || later.dynamic()) {
+                return true;
+            }
+            for (String name : earlier.writes()) {
+                if (later.reads().contains(name)) {
+                    return true;
+                }
+            }
+            for (String name : earlier.mutates()) {
+                if (later.reads().contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        // current values of every output into values[output], scripts run against the replica's model
+        void collect(ModelReplica replica, double[][] values) {
+            Binding binding = new Binding();
+            if (!scripts.isEmpty()) {
+                replica.getPlan().bindTo(binding, replica.getModel());
+                for (String script : scripts) {
+                    ScriptCache.shared().run(script, binding);
+                }
+            }
+            for (int o = 0; o < names.length; o++) {
+                Object value = fields[o] >= 0 ? replica.series(fields[o]) : binding.getVariable(names[o]);
+                if (!(value instanceof double[] series)) {
+                    throw new IllegalStateException("Output is not a series of doubles: " + names[o]);
+                }
+                int count = Math.min(series.length, values[o].length);
+                System.arraycopy(series, 0, values[o], 0, count);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package Simulation;
+
+import Controller.Controller;
+import Controller.ResultWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+// the Jacobian of a sensitivity run: for each input, input period and output, the change of the output
+// in every period per unit change of the input in that one period (periods are indexes from 0)
+public class SensitivityResult {
+    private final List<String> inputs;
+    private final List<String> outputs;
+    private final int years;
+    private final int periodFrom; // nudged input periods are periodFrom..periodTo-1
+    private final int periodTo;
+    private final double[][] baseInputs;
+    private final double[][] baseOutputs;
+    private final double[][] derivatives; // [(input * periods + inputPeriod - periodFrom) * outputs + output][period]
+
+    SensitivityResult(List<String> inputs, List<String> outputs, int years, int periodFrom, int periodTo,
+                      double[][] baseInputs, double[][] baseOutputs) {
+        this.inputs = List.copyOf(inputs);
+        this.outputs = List.copyOf(outputs);
+        this.years = years;
+        this.periodFrom = periodFrom;
+        this.periodTo = periodTo;
+        this.baseInputs = baseInputs;
+        this.baseOutputs = baseOutputs;
+        this.derivatives = new double[inputs.size() * (periodTo - periodFrom) * outputs.size()][];
+    }
+
+    // forward differences of one nudged run, values[output] against the baseline
+    void setDifferences(int input, int inputPeriod, double[][] values, double h) {
+        for (int o = 0; o < outputs.size(); o++) {
+            double[] row = new double[years];
+            for (int t = 0; t < years; t++) {
+                row[t] = (values[o][t] - baseOutputs[o][t]) / h;
+            }
+            derivatives[index(input, inputPeriod, o)] = row;
+        }
+    }
+
+    public List<String> getInputNames() {
+        return inputs;
+    }
+
+    public List<String> getOutputNames() {
+        return outputs;
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    // first and one past the last nudged input period
+    public int getPeriodFrom() {
+        return periodFrom;
+    }
+
+    public int getPeriodTo() {
+        return periodTo;
+    }
+
+    public double[] getBaseline(String output) {
+        return baseOutputs[indexOf(outputs, output, "output")].clone();
+    }
+
+    // d output[t] / d input[inputPeriod] for every t, zero before inputPeriod
+    public double[] derivative(String output, String input, int inputPeriod) {
+        return row(output, input, inputPeriod).clone();
+    }
+
+    public double derivative(String output, int period, String input, int inputPeriod) {
+        return row(output, input, inputPeriod)[period];
+    }
+
+    // relative change of the output per relative change of the input, NaN where the output is zero
+    public double elasticity(String output, int period, String input, int inputPeriod) {
+        double y = baseOutputs[indexOf(outputs, output, "output")][period];
+        double x = baseInputs[indexOf(inputs, input, "input")][inputPeriod];
+        return y != 0 ? derivative(output, period, input, inputPeriod) * x / y : Double.NaN;
+    }
+
+    public double[] elasticity(String output, String input, int inputPeriod) {
+        double[] values = new double[years];
+        for (int t = 0; t < years; t++) {
+            values[t] = elasticity(output, t, input, inputPeriod);
+        }
+        return values;
+    }
+
+    // rows OUTPUT/INPUT_YEAR, in the layout of getResultsAsTsv
+    public void writeDerivativesTo(Appendable out) throws IOException {
+        write(out, false);
+    }
+
+    public void writeElasticitiesTo(Appendable out) throws IOException {
+        write(out, true);
+    }
+
+    private void write(Appendable out, boolean elasticities) throws IOException {
+        ResultWriter writer = ResultWriter.to(out, ResultWriter.Format.TSV);
+        writer.header(Controller.START_YEAR, years);
+        for (String output : outputs) {
+            for (String input : inputs) {
+                for (int s = periodFrom; s < periodTo; s++) {
+                    double[] values = elasticities ? elasticity(output, input, s) : row(output, input, s);
+                    writer.row(output + "/" + input + "_" + (Controller.START_YEAR + s), values, years);
+                }
+            }
+        }
+        writer.finish();
+    }
+
+    private double[] row(String output, String input, int inputPeriod) {
+        if (inputPeriod < periodFrom || inputPeriod >= periodTo) {
+            throw new IndexOutOfBoundsException("Period " + inputPeriod + " was not nudged, only " + periodFrom + ".." + (periodTo - 1));
+        }
+        return derivatives[index(indexOf(inputs, input, "input"), inputPeriod, indexOf(outputs, output, "output"))];
+    }
+
+    private int index(int input, int inputPeriod, int output) {
+        return (input * (periodTo - periodFrom) + inputPeriod - periodFrom) * outputs.size() + output;
+    }
+
+    private static int indexOf(List<String> names, String name, String kind) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not an " + kind + " of this sensitivity run: " + name);
+        }
+        return index;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package Controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a failing job becomes its own failed Result, the jobs around it still run
+class BatchRunnerTest {
+    private static final String DATA = "src/main/data/data1.txt";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failingJobsAmongGoodOnesFailAlone() throws Exception {
+        String good = script("good.groovy", "COPY = new double[LL]; for (i = 0; i < LL; i++) COPY[i] = PKB[i]");
+        String assertion = script("assert.groovy", "assert PKB[0] < 0");
+        String overflow = script("overflow.groovy", "def deeper(n) { deeper(n + 1) }\ndeeper(0)");
+        String thrown = script("thrown.groovy", "throw new IllegalStateException('no')");
+        List<BatchRunner.Job> jobs = List.of(
+                new BatchRunner.Job("Model1", DATA, good),
+                new BatchRunner.Job("Model1", DATA, assertion),
+                new BatchRunner.Job("Model2", DATA, good),
+                new BatchRunner.Job("Model1", DATA, overflow),
+                new BatchRunner.Job("Model1", DATA, thrown),
+                new BatchRunner.Job("Model3", DATA, good));
+
+        Map<BatchRunner.Job, BatchRunner.Result> results = new HashMap<>();
+        try (BatchRunner runner = BatchRunner.withPlatformThreads(2)) {
+            for (BatchRunner.Result result : runner.runAll(jobs)) {
+                results.put(result.job(), result);
+            }
+        }
+
+        assertEquals(jobs.size(), results.size());
+        for (BatchRunner.Job job : List.of(jobs.get(0), jobs.get(2), jobs.get(5))) {
+            BatchRunner.Result result = results.get(job);
+            assertTrue(result.isSuccess(), job.toString());
+            assertNull(result.error());
+            String expected = new Controller(job.modelName()).readDataFrom(DATA).runModel().runScriptFromFile(good).getResultsAsTsv();
+            assertEquals(expected, result.controller().getResultsAsTsv(), job.toString());
+        }
+        assertInstanceOf(AssertionError.class, results.get(jobs.get(1)).error());
+        assertInstanceOf(StackOverflowError.class, results.get(jobs.get(3)).error());
+        assertInstanceOf(IllegalStateException.class, results.get(jobs.get(4)).error());
+        for (int i : new int[]{1, 3, 4}) {
+            assertNull(results.get(jobs.get(i)).controller());
+        }
+    }
+
+    private String script(String name, String text) throws IOException {
+        return Files.writeString(directory.resolve(name), text).toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package Controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+// data read again goes into the controller's own arrays, never into arrays it handed out
+class DataReaderTest {
+    private static final String DATA = "src/main/data/data1.txt";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void arraysHandedOutKeepTheirValues() throws IOException {
+        Controller controller = new Controller("Model1").readDataFrom(DATA);
+        BindingPlan plan = controller.getBindingPlan();
+        int field = plan.indexOf("twKI");
+        double[] handedOut = plan.getSeries(controller.getModel(), field);
+        double[] before = handedOut.clone();
+
+        controller.readDataFrom(otherData());
+
+        assertArrayEquals(before, handedOut);
+        double[] read = plan.getSeries(controller.getModel(), field);
+        assertNotSame(handedOut, read);
+        assertEquals(1.5, read[0]);
+    }
+
+    @Test
+    void ownArraysAreFilledInPlace() throws IOException {
+        Controller controller = new Controller("Model1").readDataFrom(DATA);
+        BindingPlan plan = controller.getBindingPlan();
+        int field = plan.indexOf("twKI");
+        double[] own = plan.getSeries(controller.model(), field);
+
+        controller.readDataFrom(otherData());
+
+        assertSame(own, plan.getSeries(controller.model(), field));
+        assertEquals(1.5, own[0]);
+    }
+
+    // data1.txt with other growth rates for KI
+    private String otherData() throws IOException {
+        String text = Files.readString(Path.of(DATA)).replaceFirst("(?m)^twKI .*$", "twKI 1.5 1.5 1.5 1.5 1.5");
+        return Files.writeString(directory.resolve("other.txt"), text).toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package Controller;
+
+import Equations.EquationModels;
+import Models.Panel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a panel gives for every entity the rows a Controller gives for that entity's data alone: Model1 to Model3
+// through the panel kernel of their levels, an equation model without one entity by entity
+class PanelRunnerTest {
+    private static final String PANEL = "src/main/data/panel1.txt";
+
+    @BeforeAll
+    static void defineEquationModel() throws IOException {
+        EquationModels.define("PanelEquations", Files.readString(Path.of("src/main/models/Model4.eq")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Model1", "Model2", "Model3", "PanelEquations"})
+    void entitiesGiveTheResultsOfSeparateControllers(String modelName) throws IOException {
+        String expected = separateControllers(modelName, Files.readString(Path.of(PANEL)));
+
+        for (int block : new int[]{PanelRunner.DEFAULT_BLOCK, 1}) {
+            PanelRunner runner = new PanelRunner(modelName).block(block);
+            StringBuilder results = new StringBuilder();
+            runner.writeResultsTo(runner.run(PANEL), results, ResultWriter.Format.TSV);
+            assertEquals(expected, results.toString(), modelName + " in blocks of " + block);
+        }
+    }
+
+    // east has its own twIMP, the others take the row before the first ENTITY line
+    @Test
+    void entityRowsOverrideDefaultRows() throws IOException {
+        Panel panel = new PanelRunner("Model1").read(PANEL);
+        double[] values = new double[panel.getYears()];
+        for (int e = 0; e < panel.getEntities(); e++) {
+            panel.copyEntity("twIMP", e, values);
+            assertEquals(panel.entity(e).equals("east") ? 1.1 : 1.14, values[panel.getYears() - 1], panel.entity(e));
+        }
+    }
+
+    @Test
+    void seriesOfOnlySomeEntitiesIsAnError() {
+        String data = "LATA 2015 2016\nENTITY a\nKI 1\nENTITY b\nKS 2\n";
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new PanelRunner("Model1").read(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII))));
+        assertTrue(e.getMessage().contains("Entity b has no row for KI"), e.getMessage());
+    }
+
+    // the header once, then for each entity its ENTITY row and the rows of a Controller reading the default
+    // rows and its own, its own taking precedence
+    private static String separateControllers(String modelName, String panel) {
+        String header = null;
+        Map<String, String> defaults = new LinkedHashMap<>();
+        List<String> entities = new ArrayList<>();
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (String line : panel.split("\n")) {
+            String[] tokens = line.trim().split("\\s+", 2);
+            if (tokens[0].equals("LATA")) {
+                header = line;
+            } else if (tokens[0].equals("ENTITY")) {
+                entities.add(tokens[1]);
+                rows.add(new LinkedHashMap<>());
+            } else if (!tokens[0].isEmpty()) {
+                (rows.isEmpty() ? defaults : rows.get(rows.size() - 1)).put(tokens[0], line);
+            }
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (int e = 0; e < entities.size(); e++) {
+            Map<String, String> own = new LinkedHashMap<>(defaults);
+            own.putAll(rows.get(e));
+            String data = header + "\n" + String.join("\n", own.values()) + "\n";
+            Controller controller = new Controller(modelName);
+            controller.loadData(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII)));
+            String tsv = controller.runModel().getResultsAsTsv();
+            int headerEnd = tsv.indexOf('\n') + 1;
+            if (e == 0) {
+                expected.append(tsv, 0, headerEnd);
+            }
+            expected.append("ENTITY\t").append(entities.get(e)).append('\n').append(tsv, headerEnd, tsv.length());
+        }
+        return expected.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package Controller;
+
+import Equations.EquationModels;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+// both tiers of the cache: what hits, what misses, eviction and files that can't be read
+class ResultCacheTest {
+    private static final String DATA = "src/main/data/data1.txt";
+    private static final String OTHER_DATA = "src/main/data/data2.txt";
+    private static final String SCRIPT = "src/main/scripts/script1.groovy";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sameRunHitsMemory() throws Exception {
+        ResultCache cache = new ResultCache(1 << 20);
+        String first = cache.run("Model1", DATA, SCRIPT).getResultsAsTsv();
+        String second = cache.run("Model1", DATA, SCRIPT).getResultsAsTsv();
+
+        assertEquals(expected("Model1", DATA, SCRIPT), first);
+        assertEquals(first, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void otherModelDataOrScriptsMiss() throws Exception {
+        ResultCache cache = new ResultCache(1 << 20);
+        cache.run("Model1", DATA);
+        assertEquals(expected("Model2", DATA), cache.run("Model2", DATA).getResultsAsTsv());
+        assertEquals(expected("Model1", OTHER_DATA), cache.run("Model1", OTHER_DATA).getResultsAsTsv());
+        assertEquals(expected("Model1", DATA, SCRIPT), cache.run("Model1", DATA, SCRIPT).getResultsAsTsv());
+
+        assertEquals(4, cache.getMisses());
+        assertEquals(0, cache.getMemoryHits());
+    }
+
+    @Test
+    void anotherCacheOnTheDirectoryHitsDisk() throws Exception {
+        new ResultCache(1 << 20, directory).run("Model1", DATA, SCRIPT);
+        ResultCache cache = new ResultCache(1 << 20, directory);
+
+        assertEquals(expected("Model1", DATA, SCRIPT), cache.run("Model1", DATA, SCRIPT).getResultsAsTsv());
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(0, cache.getMisses());
+        cache.run("Model1", DATA, SCRIPT);
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() throws Exception {
+        ResultCache sizing = new ResultCache(1 << 20);
+        sizing.run("Model1", DATA);
+        ResultCache cache = new ResultCache(sizing.getMemoryBytes()); // room for one snapshot of this size
+
+        cache.run("Model1", DATA);
+        cache.run("Model1", OTHER_DATA);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getMemoryEntries());
+        assertEquals(sizing.getMemoryBytes(), cache.getMemoryBytes());
+
+        cache.run("Model1", OTHER_DATA);
+        assertEquals(1, cache.getMemoryHits());
+        cache.run("Model1", DATA);
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void damagedFileIsComputedAgain() throws Exception {
+        new ResultCache(1 << 20, directory).run("Model1", DATA, SCRIPT);
+        Path file = snapshotFile();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 3));
+
+        ResultCache cache = new ResultCache(1 << 20, directory);
+        assertEquals(expected("Model1", DATA, SCRIPT), cache.run("Model1", DATA, SCRIPT).getResultsAsTsv());
+        assertEquals(0, cache.getDiskHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(bytes.length, Files.size(snapshotFile())); // written again
+
+        ResultCache again = new ResultCache(1 << 20, directory);
+        again.run("Model1", DATA, SCRIPT);
+        assertEquals(1, again.getDiskHits());
+    }
+
+    // an equation model defined again from other equations keeps its name, its old results must not come back
+    @Test
+    void changedModelDefinitionMisses() throws Exception {
+        String equations = Files.readString(Path.of("src/main/models/Model4.eq"));
+        EquationModels.define("CachedEquations", equations);
+        String before = new ResultCache(1 << 20, directory).run("CachedEquations", DATA).getResultsAsTsv();
+        String key = ResultCache.key(new Controller("CachedEquations").readDataFrom(DATA), List.of());
+
+        EquationModels.define("CachedEquations", equations.replace("- IMP[t]", "+ IMP[t]"));
+        assertNotEquals(key, ResultCache.key(new Controller("CachedEquations").readDataFrom(DATA), List.of()));
+        ResultCache cache = new ResultCache(1 << 20, directory);
+        String after = cache.run("CachedEquations", DATA).getResultsAsTsv();
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getDiskHits());
+        assertNotEquals(before, after);
+        assertEquals(new Controller("CachedEquations").readDataFrom(DATA).runModel().getResultsAsTsv(), after);
+    }
+
+    private static String expected(String model, String data, String... scripts) {
+        Controller controller = new Controller(model).readDataFrom(data).runModel();
+        for (String script : scripts) {
+            controller.runScriptFromFile(script);
+        }
+        return controller.getResultsAsTsv();
+    }
+
+    private Path snapshotFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = files.filter(file -> file.toString().endsWith(".snap")).toList();
+            assertEquals(1, snapshots.size());
+            return snapshots.get(0);
+        }
+    }
+}
\ No newline at end of file
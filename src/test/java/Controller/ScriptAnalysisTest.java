@@ -0,0 +1,91 @@
+package Controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// what a script may change, scripts changing a series run after the earlier scripts touching it
+class ScriptAnalysisTest {
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "PKB[0] = 1",
+            "PKB[0] += 1",
+            "PKB[0]++",
+            "PKB[0]--",
+            "++PKB[0]",
+            "--PKB[0]",
+            "tmp = PKB; tmp[0] = 1",
+            "def tmp = PKB; tmp[0] = 1",
+            "double[] tmp = (double[]) PKB",
+            "tmp = LL > 0 ? PKB : null",
+            "tmp = [PKB]",
+            "java.util.Arrays.fill(PKB, 0d)",
+            "PKB.sort()",
+            "update(PKB)",
+            "new ArrayList(PKB)",
+            "for (i = 0; i < LL; i++) PKB[i]++"
+    })
+    void changingPkbMutatesIt(String script) {
+        assertEquals(Set.of("PKB"), ScriptAnalysis.of(script).mutates(), script);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "ZDEKS = new double[LL]\nfor (i = 0; i < LL; i++) ZDEKS[i] = EKS[i] / PKB[i];",
+            "x = PKB[0] + 1",
+            "n = PKB.length",
+            "def total = 0; for (i = 0; i < LL; i++) total += PKB[i]",
+            "COPY = new double[LL]; COPY[0]++; tmp = COPY; java.util.Arrays.fill(COPY, 1d)",
+            "def copy = new double[LL]; copy[0] = PKB[0]; COPY = copy",
+            "n = LL; i = 0; i++"
+    })
+    void readingPkbDoesNotMutateIt(String script) {
+        assertEquals(Set.of(), ScriptAnalysis.of(script).mutates(), script);
+    }
+
+    @Test
+    void scriptsChangingASeriesWaitForItsReaders() {
+        List<ScriptAnalysis> scripts = List.of(
+                ScriptAnalysis.of("COPY = new double[LL]; for (i = 0; i < LL; i++) COPY[i] = PKB[i]"),
+                ScriptAnalysis.of("KICOPY = new double[LL]; for (i = 0; i < LL; i++) KICOPY[i] = KI[i]"),
+                ScriptAnalysis.of("java.util.Arrays.fill(PKB, 0d)"),
+                ScriptAnalysis.of("tmp = KI; tmp[0] = 1"),
+                ScriptAnalysis.of("PKB[0]++"));
+        List<Set<Integer>> waitFor = DependencyGraph.scriptDependencies(scripts);
+        assertEquals(Set.of(), waitFor.get(1));
+        assertEquals(Set.of(0), waitFor.get(2));
+        assertEquals(Set.of(1), waitFor.get(3));
+        assertEquals(Set.of(0, 2), waitFor.get(4));
+    }
+
+    // the reader sees PKB as the model left it, as when the scripts run one after the other
+    @Test
+    void runScriptsGivesTheResultsOfRunningThemInOrder() {
+        String reader = "COPY = new double[LL]; for (i = 0; i < LL; i++) COPY[i] = PKB[i]";
+        List<String> changers = List.of("java.util.Arrays.fill(PKB, 0d)", "tmp = PKB; for (i = 0; i < LL; i++) tmp[i] = 0",
+                "for (i = 0; i < LL; i++) PKB[i]--");
+        for (String changer : changers) {
+            Controller concurrent = new Controller("Model1").readDataFrom("src/main/data/data1.txt").runModel()
+                    .runScripts(List.of(reader, changer));
+            Controller inOrder = new Controller("Model1").readDataFrom("src/main/data/data1.txt").runModel()
+                    .runScript(reader).runScript(changer);
+            assertFalse(concurrent.getExecutedScripts().isEmpty());
+            assertArrayEquals(column(inOrder, "COPY"), column(concurrent, "COPY"), changer);
+            assertArrayEquals(column(inOrder, "PKB"), column(concurrent, "PKB"), changer);
+            assertTrue(column(concurrent, "COPY")[0] != column(concurrent, "PKB")[0], changer);
+        }
+    }
+
+    private static double[] column(Controller controller, String name) {
+        SeriesStore store = controller.getSeriesStore();
+        return store.column(store.id(name));
+    }
+}
\ No newline at end of file
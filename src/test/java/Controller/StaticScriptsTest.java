@@ -0,0 +1,68 @@
+package Controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// scripts compiled statically give what the same scripts give dynamically: reading the results of earlier
+// scripts and replacing a model series as a whole
+class StaticScriptsTest {
+    private static final String DATA = "src/main/data/data1.txt";
+    private static final String DOUBLE_KI = "ZKI = new double[LL]; for (int i = 0; i < LL; i++) ZKI[i] = KI[i] * 2";
+    private static final String READ_RESULTS = "WKI = new double[LL]; for (int i = 0; i < LL; i++) WKI[i] = ZKI[i] + ZDEKS[i]";
+    private static final String REPLACE_PKB = "PKB = new double[LL]; Arrays.fill(PKB, 7d); PKBCOPY = PKB";
+
+    @Test
+    void chainOfScriptsGivesTheSameResults() throws Exception {
+        assertEquals(chain(false), chain(true));
+    }
+
+    @Test
+    void batchReadingEarlierResultsGivesTheSameResults() throws Exception {
+        List<String> scripts = List.of(Controller.readScript("src/main/scripts/script1.groovy"), DOUBLE_KI, READ_RESULTS);
+        Controller dynamic = new Controller("Model1").readDataFrom(DATA).runModel();
+        dynamic.executeScripts(scripts);
+        Controller typed = new Controller("Model1").useStaticScripts(true).readDataFrom(DATA).runModel();
+        typed.executeScripts(scripts);
+
+        assertEquals(dynamic.getResultsAsTsv(), typed.getResultsAsTsv());
+        assertEquals(result(dynamic, "ZKI")[3] + result(dynamic, "ZDEKS")[3], result(typed, "WKI")[3]);
+    }
+
+    // the script's variable gets the new array, the model keeps its own
+    @Test
+    void replacingAModelSeriesLeavesTheModelAlone() throws Exception {
+        double pkb = new Controller("Model1").readDataFrom(DATA).runModel().getSeries("PKB").get(0);
+        for (boolean typed : new boolean[]{false, true}) {
+            Controller controller = new Controller("Model1").useStaticScripts(typed).readDataFrom(DATA).runModel();
+            controller.executeScript(REPLACE_PKB);
+            assertEquals(pkb, controller.getSeries("PKB").get(0), "static " + typed);
+            assertEquals(7.0, result(controller, "PKBCOPY")[0], "static " + typed);
+        }
+        assertEquals(results(false, REPLACE_PKB), results(true, REPLACE_PKB));
+    }
+
+    // the scripts one at a time, then an edit that runs them again
+    private static String chain(boolean typed) throws Exception {
+        Controller controller = new Controller("Model1").useStaticScripts(typed).readDataFrom(DATA).runModel();
+        controller.executeScriptFile("src/main/scripts/script1.groovy");
+        controller.executeScript(DOUBLE_KI);
+        controller.executeScript(READ_RESULTS);
+        controller.executeScript(REPLACE_PKB);
+        controller.updateSeries("twKI", 2, 1.5, 1.5);
+        return controller.getResultsAsTsv();
+    }
+
+    private static double[] result(Controller controller, String name) {
+        SeriesStore store = controller.getSeriesStore();
+        return store.column(store.id(name));
+    }
+
+    private static String results(boolean typed, String script) throws Exception {
+        Controller controller = new Controller("Model1").useStaticScripts(typed).readDataFrom(DATA).runModel();
+        controller.executeScript(script);
+        return controller.getResultsAsTsv();
+    }
+}
\ No newline at end of file
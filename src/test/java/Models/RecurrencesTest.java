@@ -0,0 +1,116 @@
+package Models;
+
+import Controller.BindingPlan;
+import Controller.Controller;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the parallel scans against the sequential recurrences, within Recurrences.relativeTolerance
+class RecurrencesTest {
+    private static final int YEARS = 1 << 18;
+    private static final String[] LEVELS = {"KI", "KS", "INW", "EKS", "IMP"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void cumulativeProductIsWithinToleranceOfTheLoop() {
+        SplittableRandom random = new SplittableRandom(7);
+        double[] growth = new double[YEARS];
+        for (int t = 0; t < YEARS; t++) {
+            growth[t] = 1 + (random.nextDouble() - 0.5) * 1e-3;
+        }
+        double[] sequential = new double[YEARS];
+        double[] parallel = new double[YEARS];
+        sequential[0] = parallel[0] = 1023752.2;
+        for (int t = 1; t < YEARS; t++) {
+            sequential[t] = growth[t] * sequential[t - 1];
+        }
+        Recurrences.cumulativeProduct(growth, parallel, YEARS);
+
+        double tolerance = Recurrences.relativeTolerance(YEARS);
+        for (int t = 0; t < YEARS; t++) {
+            assertWithin(sequential[t], parallel[t], tolerance * Math.abs(sequential[t]), "period " + t);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Model1", "Model2", "Model3"})
+    void runParallelIsWithinToleranceOfRun(String modelName) throws IOException {
+        assertTrue(Recurrences.worthParallel(YEARS), "the parallel path has to be taken");
+        Path data = writeData(YEARS);
+        Controller sequential = new Controller(modelName).readDataFrom(data.toString()).runModel();
+        Controller parallel = new Controller(modelName).readDataFrom(data.toString()).runModelParallel();
+
+        double tolerance = Recurrences.relativeTolerance(YEARS);
+        double[][] levels = new double[LEVELS.length][];
+        for (int i = 0; i < LEVELS.length; i++) {
+            levels[i] = series(sequential, LEVELS[i]);
+            double[] other = series(parallel, LEVELS[i]);
+            for (int t = 0; t < YEARS; t++) {
+                assertWithin(levels[i][t], other[t], tolerance * Math.abs(levels[i][t]), LEVELS[i] + " period " + t);
+            }
+        }
+        // PKB sums the levels, it may differ by the tolerance times the sum of its terms' absolute values
+        double[] pkb = series(sequential, "PKB");
+        double[] other = series(parallel, "PKB");
+        for (int t = 0; t < YEARS; t++) {
+            double terms = 0;
+            for (double[] level : levels) {
+                terms += Math.abs(level[t]);
+            }
+            assertWithin(pkb[t], other[t], tolerance * terms, "PKB period " + t);
+        }
+    }
+
+    // short horizons run the loop, the results are the ones the models gave before the parallel mode
+    @Test
+    void runParallelGivesTheBaselineResultsForShortHorizons() throws IOException {
+        String expected = new String(getClass().getResourceAsStream("data1-Model1.tsv").readAllBytes()).strip();
+        assertEquals(expected, new Controller("Model1").readDataFrom("src/main/data/data1.txt").runModel().getResultsAsTsv().strip());
+        assertEquals(expected, new Controller("Model1").readDataFrom("src/main/data/data1.txt").runModelParallel().getResultsAsTsv().strip());
+    }
+
+    private static double[] series(Controller controller, String name) {
+        BindingPlan plan = controller.getBindingPlan();
+        return plan.getSeries(controller.getModel(), plan.indexOf(name));
+    }
+
+    private static void assertWithin(double expected, double actual, double tolerance, String what) {
+        if (Math.abs(expected - actual) > tolerance) {
+            throw new AssertionError(what + ": " + actual + " differs from " + expected + " by more than " + tolerance);
+        }
+    }
+
+    // growth rates around 1 so the levels stay finite over the whole horizon
+    private Path writeData(int years) throws IOException {
+        SplittableRandom random = new SplittableRandom(11);
+        StringBuilder text = new StringBuilder("LATA");
+        for (int t = 0; t < years; t++) {
+            text.append(' ').append(2015 + t);
+        }
+        for (String level : LEVELS) {
+            text.append("\ntw").append(level);
+            for (int t = 0; t < years; t++) {
+                text.append(' ').append(1 + (random.nextDouble() - 0.5) * 1e-3);
+            }
+        }
+        double[] starts = {1023752.2, 315397, 348358, 811108.6, 784342.4};
+        for (int i = 0; i < LEVELS.length; i++) {
+            text.append('\n').append(LEVELS[i]).append(' ').append(starts[i]);
+        }
+        Path file = directory.resolve("long.txt");
+        Files.writeString(file, text.append('\n'));
+        return file;
+    }
+}
\ No newline at end of file